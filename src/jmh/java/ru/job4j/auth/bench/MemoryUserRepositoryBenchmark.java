@@ -0,0 +1,64 @@
+package ru.job4j.auth.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.MemoryUserRepository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryUserRepositoryBenchmark {
+
+    private static final int USERS = 1 << 17;
+    private static final String HASH = "$2a$10$abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOP";
+
+    private final String[] logins = new String[USERS];
+    private MemoryUserRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = new MemoryUserRepository();
+        for (int i = 0; i < USERS; i++) {
+            logins[i] = "user" + i;
+            repository.save(new Person(null, logins[i], HASH));
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public Person findByUsername() {
+        return repository.findByUsername(logins[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void save() {
+        repository.save(new Person(null, logins[ThreadLocalRandom.current().nextInt(USERS)], HASH));
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public Person findByUsernameAlone() {
+        return repository.findByUsername(logins[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+}
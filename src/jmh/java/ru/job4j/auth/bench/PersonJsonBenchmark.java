@@ -0,0 +1,57 @@
+package ru.job4j.auth.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.auth.dto.Credentials;
+import ru.job4j.auth.filter.LoginJson;
+import ru.job4j.auth.model.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonJsonBenchmark {
+
+    private static final byte[] BODY = "{\"login\":\"admin\",\"password\":\"password\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader reader = mapper.readerFor(Person.class);
+    private final LoginJson loginJson = new LoginJson(mapper, 4096);
+
+    @Benchmark
+    public Person newMapperPerCall() throws IOException {
+        return new ObjectMapper().readValue(BODY, Person.class);
+    }
+
+    @Benchmark
+    public Person sharedMapper() throws IOException {
+        return mapper.readValue(BODY, Person.class);
+    }
+
+    @Benchmark
+    public Person sharedReader() throws IOException {
+        return reader.readValue(BODY);
+    }
+
+    @Benchmark
+    public Credentials streamingCredentials() throws IOException {
+        return loginJson.read(new ByteArrayInputStream(BODY));
+    }
+}
@@ -0,0 +1,59 @@
+package ru.job4j.auth.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.auth.ratelimit.SlidingWindowLimiter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -prof gc}: the limiter should show no allocation per operation regardless of
+ * how many distinct keys are tracked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SlidingWindowLimiterBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int keys;
+
+    private String[] ips;
+    private SlidingWindowLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        ips = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            ips[i] = "10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF);
+        }
+        limiter = new SlidingWindowLimiter(30, Duration.ofMinutes(1), 1 << 17, Clock.systemUTC());
+    }
+
+    @Benchmark
+    public long acquire() {
+        return limiter.acquire(ips[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public long check() {
+        return limiter.check(ips[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
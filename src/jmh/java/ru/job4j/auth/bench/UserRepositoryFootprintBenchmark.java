@@ -0,0 +1,111 @@
+package ru.job4j.auth.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.MemoryUserRepository;
+import ru.job4j.auth.repository.person.OffHeapUserRepository;
+import ru.job4j.auth.repository.person.UserRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookup latency of the in-heap and off-heap user repositories at the given number of users.
+ * The setup prints what the loaded users take on the heap after a full GC and in direct memory;
+ * run with {@code -prof gc} to also see the collector's work per lookup. Logins are looked up with
+ * other instances than the saved ones, as they come from a request, so the map cannot get away
+ * with an identity check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=4g"})
+public class UserRepositoryFootprintBenchmark {
+
+    private static final String HASH = "$2a$10$abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOP";
+
+    @Param({"memory", "offheap"})
+    private String repository;
+
+    @Param({"10000000"})
+    private int users;
+
+    private String[] logins;
+    private UserRepository persons;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        logins = new String[users];
+        for (int i = 0; i < users; i++) {
+            logins[i] = "user" + i;
+        }
+        long heap = heapUsed();
+        long direct = directUsed();
+        long start = System.nanoTime();
+        if ("offheap".equals(repository)) {
+            directory = Files.createTempDirectory("users");
+            persons = new OffHeapUserRepository(directory, users);
+        } else {
+            persons = new MemoryUserRepository();
+        }
+        for (int i = 0; i < users; i++) {
+            persons.save(new Person(null, "user" + i, HASH));
+        }
+        long loaded = System.nanoTime() - start;
+        System.out.printf("%n%s, %d users: %d MB heap, %d MB direct, loaded in %d ms%n", repository, users,
+                (heapUsed() - heap) >> 20, (directUsed() - direct) >> 20, loaded / 1_000_000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (persons instanceof Closeable closeable) {
+            closeable.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Person findByUsername() {
+        return persons.findByUsername(logins[ThreadLocalRandom.current().nextInt(users)]);
+    }
+
+    private static long heapUsed() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.job4j.auth.filter;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.job4j.auth.cache.VerifiedTokenCache;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.jwt.SigningKey;
+import ru.job4j.auth.jwt.SigningKeys;
+import ru.job4j.auth.jwt.TokenRevocations;
+import ru.job4j.auth.jwt.TokenVerifier;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.model.Role;
+
+import jakarta.servlet.FilterChain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.HEADER_STRING;
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.TOKEN_PREFIX;
+
+/**
+ * {@code authorizeRequest} against {@code authorizeRequestBaseline} (the former double header read,
+ * {@code replace} and authority copy) is meant to be run with {@code -prof gc} and compared on
+ * {@code gc.alloc.rate.norm}, the bytes allocated per authorized request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final List<GrantedAuthority> ROLES = RoleAuthorities.of(Set.of(Role.USER, Role.ADMIN));
+
+    private final FilterChain chain = (req, res) -> { };
+
+    @Param({"HS256", "RS256", "ES256"})
+    private String algorithm;
+
+    @Param({"0", "100000"})
+    private int revokedUsers;
+
+    private SigningKeys keys;
+    private AccessTokens accessTokens;
+    private JWTAuthorizationFilter authorization;
+    private TokenVerifier tokenVerifier;
+    private JWTVerifier verifier;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        var metrics = new AuthMetrics(new SimpleMeterRegistry());
+        SigningKey key = SigningKey.HS256.equals(algorithm)
+                ? SigningKey.sharedSecret("benchmark") : SigningKey.generate(algorithm);
+        keys = new SigningKeys(() -> List.of(key));
+        accessTokens = new AccessTokens(keys, Duration.ofMinutes(15));
+        var revocations = new TokenRevocations();
+        var before = Instant.now();
+        for (int i = 0; i < revokedUsers; i++) {
+            revocations.revoke("user" + i, before);
+        }
+        tokenVerifier = new TokenVerifier(keys, new VerifiedTokenCache(1024), revocations, metrics);
+        authorization = new JWTAuthorizationFilter(auth -> auth, tokenVerifier);
+        verifier = keys.current().verifier();
+        token = createToken();
+        request = new MockHttpServletRequest();
+        request.addHeader(HEADER_STRING, TOKEN_PREFIX + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public String createToken() {
+        return accessTokens.issue("admin", ROLES);
+    }
+
+    @Benchmark
+    public String verifyWithNewVerifier() {
+        return JWT.require(keys.current().algorithm()).build().verify(token).getSubject();
+    }
+
+    @Benchmark
+    public String verifyByKid() {
+        var jwt = JWT.decode(token);
+        return keys.verifier(jwt.getKeyId()).verify(jwt).getSubject();
+    }
+
+    @Benchmark
+    public String verifyWithSharedVerifier() {
+        return verifier.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public Authentication authorizeRequest() throws Exception {
+        authorization.doFilterInternal(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Authentication authorizeRequestBaseline() {
+        String header = request.getHeader(HEADER_STRING);
+        if (header == null || !header.startsWith(TOKEN_PREFIX)) {
+            return null;
+        }
+        String bearer = request.getHeader(HEADER_STRING);
+        var verified = tokenVerifier.verify(bearer.replace(TOKEN_PREFIX, ""));
+        var authentication = new UsernamePasswordAuthenticationToken(
+                verified.subject(), null, verified.authentication().getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return authentication;
+    }
+}
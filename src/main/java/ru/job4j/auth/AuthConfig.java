@@ -0,0 +1,125 @@
+package ru.job4j.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.cors.CorsConfiguration;
+import ru.job4j.auth.cache.LoginCache;
+import ru.job4j.auth.cache.VerifiedTokenCache;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.KeyDirectory;
+import ru.job4j.auth.jwt.SigningKey;
+import ru.job4j.auth.jwt.SigningKeys;
+import ru.job4j.auth.jwt.TokenRevocations;
+import ru.job4j.auth.jwt.TokenVerifier;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Beans that do not depend on the web stack, shared by the servlet {@link WebSecurity} and the
+ * reactive application.
+ */
+@Configuration
+public class AuthConfig {
+
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength,
+                                                  @Value("${auth.bcrypt.pool-size:4}") int poolSize,
+                                                  @Value("${auth.bcrypt.queue-capacity:64}") int queueCapacity,
+                                                  @Value("${auth.bcrypt.retry-after-seconds:1}") long retryAfter,
+                                                  ObjectProvider<MeterRegistry> registry) {
+        return new BoundedPasswordEncoder(strength, poolSize, queueCapacity, retryAfter,
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public AuthMetrics authMetrics(ObjectProvider<MeterRegistry> registry) {
+        return new AuthMetrics(registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * HS256 with the shared {@code auth.jwt.secret} unless an asymmetric algorithm is chosen, in
+     * which case the key pairs come from {@code auth.jwt.key-dir}, see {@link KeyDirectory}.
+     */
+    @Bean
+    public SigningKeys signingKeys(@Value("${auth.jwt.algorithm:HS256}") String algorithm,
+                                   @Value("${auth.jwt.secret:}") String secret,
+                                   @Value("${auth.jwt.key-dir:}") String keyDir) {
+        if (SigningKey.HS256.equals(algorithm)) {
+            if (secret.isBlank()) {
+                throw new IllegalStateException("auth.jwt.secret is required for " + algorithm);
+            }
+            return SigningKeys.sharedSecret(secret);
+        }
+        if (keyDir.isBlank()) {
+            throw new IllegalStateException("auth.jwt.key-dir is required for " + algorithm);
+        }
+        return new SigningKeys(new KeyDirectory(Path.of(keyDir), algorithm));
+    }
+
+    @Bean
+    public AccessTokens accessTokens(SigningKeys keys,
+                                     @Value("${auth.jwt.access-token-ttl:15m}") Duration accessTokenTtl) {
+        return new AccessTokens(keys, accessTokenTtl);
+    }
+
+    @Bean
+    public TokenRevocations tokenRevocations() {
+        return new TokenRevocations();
+    }
+
+    @Bean
+    public TokenVerifier tokenVerifier(SigningKeys keys, VerifiedTokenCache tokens, TokenRevocations revocations,
+                                       AuthMetrics metrics) {
+        return new TokenVerifier(keys, tokens, revocations, metrics);
+    }
+
+    @Bean
+    public VerifiedTokenCache verifiedTokenCache(@Value("${auth.jwt.cache.max-size:100000}") int maxSize,
+                                                 AuthMetrics metrics) {
+        VerifiedTokenCache cache = new VerifiedTokenCache(maxSize);
+        metrics.monitor("token", cache);
+        return cache;
+    }
+
+    @Bean
+    public LoginCache loginCache(@Value("${auth.login-cache.enabled:false}") boolean enabled,
+                                 @Value("${auth.login-cache.ttl:30s}") Duration ttl,
+                                 @Value("${auth.login-cache.max-size:10000}") int maxSize,
+                                 AuthMetrics metrics) {
+        LoginCache cache = new LoginCache(enabled, ttl, maxSize);
+        metrics.monitor("login", cache);
+        return cache;
+    }
+
+    @Bean
+    public LoginThrottle loginThrottle(@Value("${auth.rate-limit.enabled:true}") boolean enabled,
+                                       @Value("${auth.rate-limit.window:1m}") Duration window,
+                                       @Value("${auth.rate-limit.logins-per-ip:30}") int loginsPerIp,
+                                       @Value("${auth.rate-limit.failures-per-login:5}") int failuresPerLogin,
+                                       @Value("${auth.rate-limit.sign-ups-per-ip:5}") int signUpsPerIp,
+                                       @Value("${auth.rate-limit.sketch-width:131072}") int sketchWidth,
+                                       AuthMetrics metrics) {
+        return new LoginThrottle(enabled, window, loginsPerIp, failuresPerLogin, signUpsPerIp, sketchWidth, metrics);
+    }
+
+    /**
+     * Registered for every path by the servlet and the reactive {@code CorsConfigurationSource}.
+     */
+    public static CorsConfiguration corsConfiguration() {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOriginPatterns(List.of("*"));
+        config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        config.setAllowedHeaders(List.of("*"));
+        config.setAllowCredentials(true);
+        return config;
+    }
+}
@@ -1,11 +1,21 @@
 package ru.job4j.auth;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
+import ru.job4j.auth.logging.LogRateLimiter;
+import ru.job4j.auth.ratelimit.RateLimitedException;
 
 import java.util.List;
 import java.util.Map;
@@ -14,10 +24,33 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private final LogRateLimiter validationLog;
+
+    public GlobalExceptionHandler(@Value("${auth.validation-log.max-per-second:10}") long maxPerSecond) {
+        this.validationLog = new LogRateLimiter(maxPerSecond);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public List<?> handle(MethodArgumentNotValidException e) {
-        log.error("Validation error: {}", e.getMessage());
+        return fieldErrors(e);
+    }
+
+    /**
+     * The reactive counterpart of {@link MethodArgumentNotValidException}, answered the same way.
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public List<?> handle(WebExchangeBindException e) {
+        return fieldErrors(e);
+    }
+
+    private List<?> fieldErrors(BindingResult e) {
+        long suppressed = validationLog.tryAcquire();
+        if (suppressed >= 0 && log.isWarnEnabled()) {
+            log.warn("Validation error on {} field(s) of {}, {} similar message(s) suppressed",
+                    e.getErrorCount(), e.getObjectName(), suppressed);
+        }
         return e.getFieldErrors().stream()
                 .map(f -> Map.of(
                         f.getField(),
@@ -25,4 +58,31 @@ public class GlobalExceptionHandler {
                 ))
                 .toList();
     }
+
+    @ExceptionHandler(PasswordEncoderSaturatedException.class)
+    public ResponseEntity<Map<String, String>> handle(PasswordEncoderSaturatedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<Map<String, String>> handle(RateLimitedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handle(DataIntegrityViolationException e) {
+        log.warn("Constraint violation: {}", e.getMostSpecificCause().getMessage());
+        return Map.of("message", "User with the same login already exists");
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handle(OptimisticLockingFailureException e) {
+        return Map.of("message", "User was modified concurrently, fetch it and retry");
+    }
 }
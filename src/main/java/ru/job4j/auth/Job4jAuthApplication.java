@@ -2,18 +2,16 @@ package ru.job4j.auth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.job4j.auth.aot.AuthRuntimeHints;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(AuthRuntimeHints.class)
 public class Job4jAuthApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(Job4jAuthApplication.class, args);
     }
-
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-}
\ No newline at end of file
+}
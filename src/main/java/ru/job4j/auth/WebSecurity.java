@@ -1,43 +1,77 @@
 package ru.job4j.auth;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import ru.job4j.auth.cache.LoginCache;
 import ru.job4j.auth.filter.JWTAuthenticationFilter;
 import ru.job4j.auth.filter.JWTAuthorizationFilter;
+import ru.job4j.auth.filter.LoginAuthenticator;
+import ru.job4j.auth.filter.LoginJson;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.TokenVerifier;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+import ru.job4j.auth.service.RefreshTokenService;
 
-import java.util.List;
-
+import static ru.job4j.auth.controller.JwksController.JWKS_URL;
+import static ru.job4j.auth.controller.TokenController.REFRESH_URL;
 import static ru.job4j.auth.filter.JWTAuthenticationFilter.SIGN_UP_URL;
 
 @Configuration
 @EnableWebSecurity
+@EnableMethodSecurity
+@Import(AuthConfig.class)
 public class WebSecurity {
 
+    /**
+     * Port of the separate management server, or -1 when actuator shares the application port.
+     * Scrapes that arrive there pass without a token, so the port must not be published.
+     */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http,
-                                                   AuthenticationManager authManager) throws Exception {
+                                                   AuthenticationManager authManager,
+                                                   LoginAuthenticator authenticator,
+                                                   LoginJson loginJson,
+                                                   AccessTokens accessTokens,
+                                                   RefreshTokenService refreshTokens,
+                                                   TokenVerifier verifier) throws Exception {
 
-        JWTAuthenticationFilter jwtAuthFilter = new JWTAuthenticationFilter(authManager);
-        JWTAuthorizationFilter jwtAuthorizationFilter = new JWTAuthorizationFilter(authManager);
+        JWTAuthenticationFilter jwtAuthFilter = new JWTAuthenticationFilter(
+                authenticator, loginJson, accessTokens, refreshTokens);
+        JWTAuthorizationFilter jwtAuthorizationFilter = new JWTAuthorizationFilter(authManager, verifier);
 
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> {
                 })
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/error").permitAll()
-                        .requestMatchers(HttpMethod.POST, SIGN_UP_URL).permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(this::onManagementPort).permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, JWKS_URL).permitAll()
+                        .requestMatchers(HttpMethod.POST, SIGN_UP_URL, REFRESH_URL).permitAll()
                         .requestMatchers(HttpMethod.PATCH, "/person/**").authenticated()
                         .anyRequest().authenticated()
                 )
@@ -49,21 +83,31 @@ public class WebSecurity {
         return http.build();
     }
 
+    private boolean onManagementPort(HttpServletRequest request) {
+        return managementPort > 0 && request.getLocalPort() == managementPort;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
 
     @Bean
-    CorsConfigurationSource corsConfigurationSource() {
-        CorsConfiguration config = new CorsConfiguration();
-        config.setAllowedOriginPatterns(List.of("*"));
-        config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("*"));
-        config.setAllowCredentials(true);
+    public LoginJson loginJson(ObjectMapper objectMapper,
+                               @Value("${auth.login.max-body-size:4KB}") DataSize maxBodySize) {
+        return new LoginJson(objectMapper, (int) maxBodySize.toBytes());
+    }
 
+    @Bean
+    public LoginAuthenticator loginAuthenticator(AuthenticationManager authManager, LoginCache logins,
+                                                 LoginThrottle throttle, AuthMetrics metrics) {
+        return new LoginAuthenticator(authManager, logins, throttle, metrics);
+    }
+
+    @Bean
+    CorsConfigurationSource corsConfigurationSource() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", config);
+        source.registerCorsConfiguration("/**", AuthConfig.corsConfiguration());
         return source;
     }
 }
@@ -0,0 +1,38 @@
+package ru.job4j.auth.aot;
+
+import com.auth0.jwt.impl.HeaderClaimsHolder;
+import com.auth0.jwt.impl.PayloadClaimsHolder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import ru.job4j.auth.dto.BulkImportResult;
+import ru.job4j.auth.dto.Credentials;
+import ru.job4j.auth.dto.PersonDto;
+import ru.job4j.auth.dto.TokenDto;
+import ru.job4j.auth.model.Person;
+
+/**
+ * Reflection the native image cannot discover from the bean definitions. Jackson binds the
+ * Lombok-generated accessors of the DTOs and of {@link Person}, which the JWT filters, the login
+ * JSON and the CSV import reach outside of any controller signature; java-jwt serializes its claim
+ * holders through the same introspection, and the JCache providers are loaded by name.
+ */
+public class AuthRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindings.registerReflectionHints(hints.reflection(), Person.class, PersonDto.class, Credentials.class,
+                TokenDto.class, BulkImportResult.class, HeaderClaimsHolder.class, PayloadClaimsHolder.class);
+        hints.reflection()
+                .registerType(TypeReference.of("com.auth0.jwt.impl.BasicHeader"), MemberCategory.values())
+                .registerType(TypeReference.of("com.auth0.jwt.impl.PayloadImpl"), MemberCategory.values())
+                .registerType(EhcacheCachingProvider.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(JCacheRegionFactory.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
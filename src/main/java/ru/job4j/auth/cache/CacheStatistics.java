@@ -0,0 +1,12 @@
+package ru.job4j.auth.cache;
+
+public interface CacheStatistics {
+
+    int size();
+
+    long hits();
+
+    long misses();
+
+    long evictions();
+}
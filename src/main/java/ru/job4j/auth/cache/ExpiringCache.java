@@ -0,0 +1,117 @@
+package ru.job4j.auth.cache;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache where every entry carries its own expiry instant.
+ * Expired entries are dropped lazily on read and in bulk when the cache is full;
+ * if it is still full after that, arbitrary entries are evicted to make room.
+ */
+public class ExpiringCache<K, V> implements CacheStatistics {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxSize;
+    private final Clock clock;
+
+    public ExpiringCache(int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    public ExpiringCache(int maxSize, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() <= clock.millis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAt) {
+        if (expiresAt <= clock.millis()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom();
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private void makeRoom() {
+        if (!cleaning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = clock.millis();
+            int target = maxSize - Math.max(1, maxSize / 10);
+            for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext();) {
+                if (it.next().expiresAt() <= now) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext() && entries.size() > target;) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,141 @@
+package ru.job4j.auth.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import ru.job4j.auth.event.UserChangedEvent;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Short-lived memory of successful logins. Only an HMAC of the credentials is kept,
+ * under a key generated at startup, so a repeated login skips the BCrypt comparison.
+ * <p>
+ * A login checked against a hash that a concurrent change has since replaced must not be kept:
+ * the caller takes the {@link #generation} of the login before reading the hash, and
+ * {@link #put} drops the entry once a change has moved the generation on.
+ */
+public class LoginCache implements CacheStatistics {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int STRIPES = 1024;
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final ExpiringCache<String, Entry> logins;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final ThreadLocal<Mac> macs;
+    private final Clock clock;
+
+    public LoginCache(boolean enabled, Duration ttl, int maxSize) {
+        this(enabled, ttl, maxSize, Clock.systemUTC());
+    }
+
+    public LoginCache(boolean enabled, Duration ttl, int maxSize, Clock clock) {
+        this.enabled = enabled;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.logins = new ExpiringCache<>(maxSize, clock);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec spec = new SecretKeySpec(key, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public Collection<? extends GrantedAuthority> authorities(String login, String password) {
+        if (!enabled || login == null || password == null) {
+            return null;
+        }
+        Entry entry = logins.get(login);
+        if (entry == null || !MessageDigest.isEqual(entry.digest(), digest(login, password))) {
+            return null;
+        }
+        return entry.authorities();
+    }
+
+    /**
+     * Taken before the password hash is read, and handed to {@link #put} with the result.
+     */
+    public long generation(String login) {
+        return login == null ? 0 : generations.get(stripe(login));
+    }
+
+    /**
+     * Checked again after the entry is stored: a change either moved the generation before that
+     * check, or removes the entry after it.
+     */
+    public void put(String login, String password, Collection<? extends GrantedAuthority> authorities,
+                    long generation) {
+        if (!enabled || login == null || password == null || generation(login) != generation) {
+            return;
+        }
+        logins.put(login, new Entry(digest(login, password), authorities),
+                clock.millis() + ttlMillis);
+        if (generation(login) != generation) {
+            logins.remove(login);
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.isAnyUser()) {
+            for (int i = 0; i < STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            logins.clear();
+        } else {
+            generations.incrementAndGet(stripe(event.login()));
+            logins.remove(event.login());
+        }
+    }
+
+    @Override
+    public int size() {
+        return logins.size();
+    }
+
+    @Override
+    public long hits() {
+        return logins.hits();
+    }
+
+    @Override
+    public long misses() {
+        return logins.misses();
+    }
+
+    @Override
+    public long evictions() {
+        return logins.evictions();
+    }
+
+    private static int stripe(String login) {
+        return login.hashCode() & STRIPES - 1;
+    }
+
+    private byte[] digest(String login, String password) {
+        Mac mac = macs.get();
+        mac.update(login.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Entry(byte[] digest, Collection<? extends GrantedAuthority> authorities) {
+    }
+}
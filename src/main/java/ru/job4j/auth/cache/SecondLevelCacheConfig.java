@@ -0,0 +1,83 @@
+package ru.job4j.auth.cache;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache on a local Ehcache behind JCache. Every region is declared here,
+ * bounded and with a time to live, and a region Hibernate asks for that is missing fails the
+ * startup instead of quietly becoming an unbounded default cache.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SecondLevelCacheConfig {
+
+    public static final String PERSON = "person";
+    public static final String PERSON_LOGIN = "person-login";
+    public static final String PERSON_ROLES = "person-roles";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${auth.l2-cache.ttl:10m}") Duration ttl,
+                                                @Value("${auth.l2-cache.max-size:10000}") long maxSize) {
+        var bounded = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxSize))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl));
+        var config = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(PERSON, bounded)
+                .withCache(PERSON_LOGIN, bounded)
+                .withCache(PERSON_ROLES, bounded)
+                .build();
+        var provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        var manager = provider.getCacheManager(URI.create("urn:job4j-auth:l2:" + UUID.randomUUID()), config);
+        for (String name : manager.getCacheNames()) {
+            manager.enableStatistics(name, true);
+        }
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public SecondLevelCacheEvictor secondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        return new SecondLevelCacheEvictor(entityManagerFactory.unwrap(SessionFactory.class));
+    }
+
+    /**
+     * {@code cache.gets} tagged {@code result=hit|miss} per region; the hit ratio is their quotient.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> {
+            for (String name : secondLevelCacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, secondLevelCacheManager.getCache(name), "layer", "l2");
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package ru.job4j.auth.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.context.event.EventListener;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+
+/**
+ * Local writes keep the second-level cache current by themselves; a change made on another
+ * instance has to be evicted here. A login entry is evicted on its own; the natural-id region
+ * is cleared whole only when the changed login is not known.
+ */
+public class SecondLevelCacheEvictor {
+
+    private static final String ROLES = Person.class.getName() + ".roles";
+
+    private final SessionFactory sessionFactory;
+    private final Cache cache;
+
+    public SecondLevelCacheEvictor(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.cache = sessionFactory.getCache();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.remote()) {
+            return;
+        }
+        if (event.id() == null) {
+            cache.evictEntityData(Person.class);
+            cache.evictCollectionData(ROLES);
+        } else {
+            cache.evictEntityData(Person.class, event.id());
+            cache.evictCollectionData(ROLES, event.id());
+        }
+        if (event.isAnyUser()) {
+            cache.evictNaturalIdData(Person.class);
+        } else {
+            try (var session = sessionFactory.openStatelessSession()) {
+                evictLogin((SharedSessionContractImplementor) session, event.login());
+            }
+        }
+    }
+
+    /**
+     * Drops the natural-id entry of the login; the key carries the session's tenant, hence the session.
+     */
+    public static void evictLogin(SharedSessionContractImplementor session, String login) {
+        var persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Person.class);
+        var access = persister.getNaturalIdCacheAccessStrategy();
+        access.evict(access.generateCacheKey(login, persister, session));
+    }
+}
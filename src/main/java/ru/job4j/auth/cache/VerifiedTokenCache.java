@@ -0,0 +1,74 @@
+package ru.job4j.auth.cache;
+
+import ru.job4j.auth.jwt.AccessTokenAuthentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+
+/**
+ * Issue times and authentications of already verified JWTs keyed by the SHA-256 digest of the token,
+ * so a repeated token skips signature verification until its {@code exp}.
+ */
+public class VerifiedTokenCache implements CacheStatistics {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ExpiringCache<String, Verified> subjects;
+
+    public VerifiedTokenCache(int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(int maxSize, Clock clock) {
+        this.subjects = new ExpiringCache<>(maxSize, clock);
+    }
+
+    public Verified get(String token) {
+        return subjects.get(digest(token));
+    }
+
+    public void put(String token, Verified verified, long expiresAt) {
+        subjects.put(digest(token), verified, expiresAt);
+    }
+
+    @Override
+    public int size() {
+        return subjects.size();
+    }
+
+    @Override
+    public long hits() {
+        return subjects.hits();
+    }
+
+    @Override
+    public long misses() {
+        return subjects.misses();
+    }
+
+    @Override
+    public long evictions() {
+        return subjects.evictions();
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    public record Verified(long issuedAtMillis, AccessTokenAuthentication authentication) {
+
+        public String subject() {
+            return authentication.subject();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.job4j.auth.cluster;
+
+import ru.job4j.auth.event.UserChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wire format of an invalidation: the sending node on the first line, then one changed user per
+ * line as {@code id:login}, the id empty when unknown, or {@code *} for every user. PostgreSQL
+ * caps a payload just under 8000 bytes, so larger batches are split.
+ */
+public record Invalidation(String node, List<UserChangedEvent> changes) {
+
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final String ANY_USER = "*";
+
+    public static List<String> payloads(String node, Collection<UserChangedEvent> changes) {
+        var payloads = new ArrayList<String>();
+        var payload = new StringBuilder(node);
+        int bytes = utf8Length(node);
+        for (UserChangedEvent change : changes) {
+            String line = line(change);
+            int length = utf8Length(line) + 1;
+            if (bytes + length > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(node);
+                bytes = utf8Length(node);
+            }
+            payload.append('\n').append(line);
+            bytes += length;
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    /**
+     * Anything unreadable becomes "every user": dropping too much is only a few cache misses.
+     */
+    public static Invalidation parse(String payload) {
+        String[] lines = payload.split("\n");
+        var changes = new ArrayList<UserChangedEvent>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            changes.add(change(lines[i]));
+        }
+        return new Invalidation(lines[0], changes);
+    }
+
+    private static String line(UserChangedEvent change) {
+        String login = change.login();
+        if (change.isAnyUser() || login.indexOf('\n') >= 0 || utf8Length(login) > MAX_PAYLOAD_BYTES / 2) {
+            return ANY_USER;
+        }
+        return (change.id() == null ? "" : change.id().toString()) + ':' + login;
+    }
+
+    private static UserChangedEvent change(String line) {
+        int colon = line.indexOf(':');
+        if (colon < 0 || line.length() == colon + 1) {
+            return new UserChangedEvent(null, null, true);
+        }
+        try {
+            Integer id = colon == 0 ? null : Integer.valueOf(line.substring(0, colon));
+            return new UserChangedEvent(line.substring(colon + 1), id, true);
+        } catch (NumberFormatException e) {
+            return new UserChangedEvent(null, null, true);
+        }
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
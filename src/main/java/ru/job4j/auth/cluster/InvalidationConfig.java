@@ -0,0 +1,43 @@
+package ru.job4j.auth.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Off unless {@code auth.invalidation.enabled}: it needs PostgreSQL, and a single instance has
+ * nobody to tell. The listening connection is opened with the pool's settings but outside of it,
+ * so it is not counted as a leak and does not take a connection from the requests.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "auth.invalidation.enabled", havingValue = "true")
+public class InvalidationConfig {
+
+    @Bean
+    public NotificationTransport notificationTransport(DataSource dataSource, DataSourceProperties properties,
+                                                       @Value("${auth.invalidation.channel:auth_user_changed}")
+                                                       String channel) {
+        DataSource listenDataSource = properties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        return new PgNotificationTransport(dataSource, listenDataSource, channel);
+    }
+
+    @Bean
+    public UserInvalidationBus userInvalidationBus(NotificationTransport transport,
+                                                   ApplicationEventPublisher events,
+                                                   @Value("${auth.invalidation.max-batch:256}") int maxBatch,
+                                                   @Value("${auth.invalidation.poll-timeout:500ms}") Duration pollTimeout,
+                                                   @Value("${auth.invalidation.max-backoff:30s}") Duration maxBackoff,
+                                                   AuthMetrics metrics) {
+        return new UserInvalidationBus(transport, events, maxBatch, pollTimeout, maxBackoff, metrics);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.job4j.auth.cluster;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Broadcasts short text payloads to every subscribed instance. {@link PgNotificationTransport}
+ * is the production one, over PostgreSQL {@code LISTEN/NOTIFY}.
+ */
+public interface NotificationTransport {
+
+    void send(List<String> payloads) throws SQLException;
+
+    Subscription subscribe() throws SQLException;
+
+    interface Subscription extends AutoCloseable {
+
+        /**
+         * Waits up to {@code timeout} for payloads, an empty list when none arrived. Throws once the
+         * subscription is lost; the caller subscribes again.
+         */
+        List<String> poll(Duration timeout) throws SQLException;
+
+        @Override
+        void close();
+    }
+}
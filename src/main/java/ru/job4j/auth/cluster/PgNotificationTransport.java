@@ -0,0 +1,118 @@
+package ru.job4j.auth.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@code LISTEN/NOTIFY} on the application's own database. Payloads are sent over a pooled
+ * connection, all of them in one statement; a subscription holds one connection for as long as it lives,
+ * so it can be taken from a separate unpooled data source and leave the pool to the requests.
+ */
+@Slf4j
+public class PgNotificationTransport implements NotificationTransport {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final long VALIDATE_AFTER_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final DataSource dataSource;
+    private final DataSource listenDataSource;
+    private final String channel;
+
+    public PgNotificationTransport(DataSource dataSource, String channel) {
+        this(dataSource, dataSource, channel);
+    }
+
+    public PgNotificationTransport(DataSource dataSource, DataSource listenDataSource, String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.listenDataSource = listenDataSource;
+        this.channel = channel;
+    }
+
+    @Override
+    public void send(List<String> payloads) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select pg_notify(?, payload) from unnest(?::text[]) payload")) {
+            statement.setString(1, channel);
+            statement.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+            statement.executeQuery().close();
+        }
+    }
+
+    @Override
+    public Subscription subscribe() throws SQLException {
+        Connection connection = listenDataSource.getConnection();
+        try {
+            PGConnection pg = connection.unwrap(PGConnection.class);
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("listen " + channel);
+            }
+            return new PgSubscription(connection, pg);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static final class PgSubscription implements Subscription {
+
+        private final Connection connection;
+        private final PGConnection pg;
+        private long validated = System.nanoTime();
+
+        private PgSubscription(Connection connection, PGConnection pg) {
+            this.connection = connection;
+            this.pg = pg;
+        }
+
+        /**
+         * A dropped server connection fails the read, but a half-open one just stays silent,
+         * so an idle subscription is validated every half minute.
+         */
+        @Override
+        public List<String> poll(Duration timeout) throws SQLException {
+            PGNotification[] notifications = pg.getNotifications((int) Math.max(1, timeout.toMillis()));
+            if (notifications == null || notifications.length == 0) {
+                long now = System.nanoTime();
+                if (now - validated > VALIDATE_AFTER_NANOS) {
+                    if (!connection.isValid((int) Math.max(1, timeout.toSeconds()))) {
+                        throw new SQLRecoverableException("Notification connection is no longer valid");
+                    }
+                    validated = now;
+                }
+                return List.of();
+            }
+            validated = System.nanoTime();
+            var payloads = new ArrayList<String>(notifications.length);
+            for (PGNotification notification : notifications) {
+                payloads.add(notification.getParameter());
+            }
+            return payloads;
+        }
+
+        @Override
+        public void close() {
+            try (connection; Statement statement = connection.createStatement()) {
+                statement.execute("unlisten *");
+            } catch (SQLException e) {
+                log.debug("Closing a broken notification connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.job4j.auth.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays {@link UserChangedEvent}s between instances so every node can cache users aggressively.
+ * Local changes are queued and sent in batches by one thread; another thread listens and republishes
+ * the changes of the other nodes as remote events. Both retry with exponential backoff, and every
+ * (re)subscription is followed by a remote "every user" event because whatever was sent while this
+ * node was not listening is lost.
+ */
+@Slf4j
+public class UserInvalidationBus implements SmartLifecycle {
+
+    /**
+     * Stopped after the web server, so changes made by the last requests still go out.
+     */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(100);
+
+    private final NotificationTransport transport;
+    private final ApplicationEventPublisher events;
+    private final int maxBatch;
+    private final Duration pollTimeout;
+    private final Duration maxBackoff;
+    private final String node = UUID.randomUUID().toString();
+    private final BlockingQueue<UserChangedEvent> outbox = new LinkedBlockingQueue<>();
+    private final CustomizableThreadFactory threads = new CustomizableThreadFactory("user-invalidation-");
+    private final Counter sent;
+    private final Counter received;
+    private final Counter subscribed;
+
+    private volatile boolean running;
+    private Thread sender;
+    private Thread listener;
+
+    public UserInvalidationBus(NotificationTransport transport, ApplicationEventPublisher events, int maxBatch,
+                               Duration pollTimeout, Duration maxBackoff, AuthMetrics metrics) {
+        this.transport = transport;
+        this.events = events;
+        this.maxBatch = maxBatch;
+        this.pollTimeout = pollTimeout;
+        this.maxBackoff = maxBackoff;
+        this.threads.setDaemon(true);
+        this.sent = metrics.counter("auth.invalidation", "event", "sent");
+        this.received = metrics.counter("auth.invalidation", "event", "received");
+        this.subscribed = metrics.counter("auth.invalidation", "event", "subscribed");
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.remote()) {
+            outbox.offer(event);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sender = threads.newThread(this::sendLoop);
+        listener = threads.newThread(this::listenLoop);
+        sender.start();
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listener.interrupt();
+        try {
+            sender.join(pollTimeout.multipliedBy(2).toMillis());
+            listener.join(pollTimeout.multipliedBy(2).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void sendLoop() {
+        var batch = new ArrayList<UserChangedEvent>();
+        Duration backoff = MIN_BACKOFF;
+        while (running || !outbox.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    UserChangedEvent first = outbox.poll(pollTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                outbox.drainTo(batch);
+                var changes = collapse(batch, UserChangedEvent.anyUser());
+                transport.send(Invalidation.payloads(node, changes));
+                sent.increment(changes.size());
+                batch.clear();
+                backoff = MIN_BACKOFF;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Could not send {} user invalidations, retrying in {}", batch.size(), backoff, e);
+                var changes = collapse(batch, UserChangedEvent.anyUser());
+                batch.clear();
+                batch.addAll(changes);
+                if (!running || !sleep(backoff)) {
+                    return;
+                }
+                backoff = next(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void listenLoop() {
+        Duration backoff = MIN_BACKOFF;
+        while (running) {
+            try (var subscription = transport.subscribe()) {
+                subscribed.increment();
+                events.publishEvent(remoteAnyUser());
+                backoff = MIN_BACKOFF;
+                while (running) {
+                    relay(subscription.poll(pollTimeout));
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("User invalidation subscription lost, resubscribing in {}", backoff, e);
+                if (!sleep(backoff)) {
+                    return;
+                }
+                backoff = next(backoff);
+            }
+        }
+    }
+
+    private void relay(List<String> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        var changes = new ArrayList<UserChangedEvent>();
+        for (String payload : payloads) {
+            var invalidation = Invalidation.parse(payload);
+            if (!node.equals(invalidation.node())) {
+                changes.addAll(invalidation.changes());
+            }
+        }
+        received.increment(changes.size());
+        for (UserChangedEvent change : collapse(changes, remoteAnyUser())) {
+            events.publishEvent(change);
+        }
+    }
+
+    /**
+     * Drops duplicates, and replaces the whole batch with {@code anyUser} when it holds one or is
+     * larger than {@code maxBatch}: clearing a cache once is cheaper than thousands of evictions.
+     */
+    private Collection<UserChangedEvent> collapse(List<UserChangedEvent> changes, UserChangedEvent anyUser) {
+        var distinct = new LinkedHashSet<>(changes);
+        if (distinct.size() > maxBatch || distinct.stream().anyMatch(UserChangedEvent::isAnyUser)) {
+            return List.of(anyUser);
+        }
+        return distinct;
+    }
+
+    private static UserChangedEvent remoteAnyUser() {
+        return new UserChangedEvent(null, null, true);
+    }
+
+    private Duration next(Duration backoff) {
+        Duration doubled = backoff.multipliedBy(2);
+        return doubled.compareTo(maxBackoff) > 0 ? maxBackoff : doubled;
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.job4j.auth.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.auth.jwt.SigningKeys;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    public static final String JWKS_URL = "/.well-known/jwks.json";
+
+    private final SigningKeys keys;
+
+    @Value("${auth.jwt.jwks-max-age:1h}")
+    private Duration maxAge;
+
+    @GetMapping(JWKS_URL)
+    public ResponseEntity<Map<String, List<Map<String, String>>>> jwks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        SigningKeys.Jwks jwks = keys.jwks();
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+        if (jwks.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(jwks.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(jwks.etag()).cacheControl(cacheControl).body(jwks.body());
+    }
+}
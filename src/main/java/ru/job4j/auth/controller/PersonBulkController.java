@@ -0,0 +1,105 @@
+package ru.job4j.auth.controller;
+
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.job4j.auth.dto.BulkImportResult;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonCursor;
+import ru.job4j.auth.service.PersonBulkService;
+import ru.job4j.auth.stream.NdjsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Imports hash every password. Only an admin may pass {@code keepHashes=true} to keep the BCrypt
+ * hashes of rows exported from another instance, since a kept hash is a credential the caller
+ * chose.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/person/bulk")
+public class PersonBulkController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final String KEEP_HASHES_RULE = "!#keepHashes or hasRole('ADMIN')";
+
+    private static final CsvMapper CSV = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final CsvSchema CSV_EXPORT_SCHEMA = CSV.schemaFor(Person.class).withHeader();
+
+    private final PersonBulkService bulk;
+    private final PersonCursor cursor;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize(KEEP_HASHES_RULE)
+    public BulkImportResult importJson(InputStream body,
+                                       @RequestParam(defaultValue = "false") boolean keepHashes) throws IOException {
+        try (MappingIterator<Person> rows = objectMapper.readerFor(Person.class).readValues(body)) {
+            return bulk.importAll(rows, keepHashes);
+        }
+    }
+
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    @PreAuthorize(KEEP_HASHES_RULE)
+    public BulkImportResult importCsv(InputStream body,
+                                      @RequestParam(defaultValue = "false") boolean keepHashes) throws IOException {
+        try (MappingIterator<Person> rows = CSV.readerFor(Person.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(body)) {
+            return bulk.importAll(rows, keepHashes);
+        }
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> {
+                    try (var ndjson = new NdjsonWriter(objectMapper, out)) {
+                        cursor.forEach(ndjson::write);
+                    }
+                });
+    }
+
+    @GetMapping(produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                .body(out -> {
+                    try (SequenceWriter csv = CSV.writer(CSV_EXPORT_SCHEMA).writeValues(out)) {
+                        cursor.forEach(person -> {
+                            try {
+                                csv.write(person);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                });
+    }
+}
@@ -1,76 +1,220 @@
 package ru.job4j.auth.controller;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.job4j.auth.Operation;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
 import ru.job4j.auth.dto.PersonDto;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.event.UserChangedEvent;
 import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonCursor;
 import ru.job4j.auth.repository.person.PersonRepository;
+import ru.job4j.auth.repository.person.PersonsVersion;
+import ru.job4j.auth.stream.KeysetPage;
+import ru.job4j.auth.stream.NdjsonWriter;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Validated
 @RequestMapping("/person")
 public class PersonController {
 
     private final PersonRepository persons;
-    private final BCryptPasswordEncoder encoder;
+    private final BoundedPasswordEncoder encoder;
+    private final ApplicationEventPublisher events;
+    private final PersonCursor cursor;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Writes after hashing, so the BCrypt threads never wait for a database connection.
+     */
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private final Executor writes;
+
+    @Value("${auth.page.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * The ETag is taken from the ids and versions of the rows read, so an unchanged list is still
+     * read but answered with a 304 instead of being sent again.
+     */
     @GetMapping("/")
-    public List<Person> findAll() {
-        return (List<Person>) this.persons.findAll();
+    public ResponseEntity<List<Person>> findAll() {
+        var all = (List<Person>) this.persons.findAll();
+        return ResponseEntity.ok().eTag(PersonsVersion.of(all).etag()).body(all);
+    }
+
+    @GetMapping(value = "/", params = "limit")
+    public ResponseEntity<List<Person>> findPage(@RequestParam(defaultValue = "0") int after,
+                                                 @RequestParam int limit) {
+        int size = KeysetPage.limit(limit, maxLimit);
+        return KeysetPage.of(this.persons.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size)), size);
+    }
+
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> {
+                    try (var ndjson = new NdjsonWriter(objectMapper, out)) {
+                        this.cursor.forEach(ndjson::write);
+                    }
+                });
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Person> findById(@PathVariable int id) {
-        var person = this.persons.findById(id);
-        return new ResponseEntity<>(
-                person.orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "User with ID %d not found".formatted(id)
-                )),
-                HttpStatus.OK
-        );
+        return withETag(this.persons.findById(id).orElseThrow(() -> notFound(id)));
     }
 
+    /**
+     * Always inserts: an id in the body is dropped, since saving it would update that person
+     * without the version check and revocation of {@link #update}.
+     */
     @PostMapping("/")
-    public ResponseEntity<Person> create(@Validated(Operation.OnCreate.class) @RequestBody Person person) {
-        return new ResponseEntity<>(
-                this.persons.save(person),
-                HttpStatus.CREATED
-        );
+    public CompletableFuture<ResponseEntity<Person>> create(
+            @Validated(Operation.OnCreate.class) @RequestBody Person person) {
+        person.setId(null);
+        return encoder.encodeAsync(person.getPassword())
+                .thenApplyAsync(hash -> {
+                    person.setPassword(hash);
+                    var saved = this.persons.save(person);
+                    this.events.publishEvent(UserChangedEvent.of(saved.getId(), saved.getLogin()));
+                    return new ResponseEntity<>(saved, HttpStatus.CREATED);
+                }, writes);
     }
 
     @PutMapping("/")
-    public ResponseEntity<Void> update(@Validated(Operation.OnUpdate.class) @RequestBody Person person) {
-        this.persons.save(person);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> update(
+            @Validated(Operation.OnUpdate.class) @RequestBody Person body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        int id = body.getId();
+        var current = current(id, ifMatch);
+        return encoder.encodeAsync(body.getPassword())
+                .thenApplyAsync(hash -> {
+                    long version = applyPatch(id, current, body.getLogin(), hash);
+                    return ResponseEntity.ok().eTag(etag(version)).build();
+                }, writes);
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<Person> patch(@PathVariable int id, @RequestBody PersonDto dto) {
-        var person = this.persons.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        if (dto.getLogin() != null) {
-            person.setLogin(dto.getLogin());
+    public CompletableFuture<ResponseEntity<Person>> patch(
+            @PathVariable int id, @RequestBody PersonDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var current = current(id, ifMatch);
+        if (dto.getPassword() == null) {
+            return CompletableFuture.completedFuture(patched(id, current, dto.getLogin(), null));
         }
-        if (dto.getPassword() != null) {
-            person.setPassword(encoder.encode(dto.getPassword()));
-        }
-        return ResponseEntity.ok(this.persons.save(person));
+        return encoder.encodeAsync(dto.getPassword())
+                .thenApplyAsync(hash -> patched(id, current, dto.getLogin(), hash), writes);
     }
 
+    /**
+     * One DELETE when the person is in the second-level cache, otherwise a SELECT of the login
+     * first: the invalidation and revocation events need it. PostgreSQL could return it from the
+     * DELETE, but that statement would neither run on H2 nor evict the cache as a bulk delete does.
+     */
     @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> delete(@PathVariable int id) {
-        Person person = new Person();
-        person.setId(id);
-        this.persons.delete(person);
+        var login = this.persons.findById(id).map(Person::getLogin);
+        if (this.persons.removeById(id) == 0) {
+            throw notFound(id);
+        }
+        this.events.publishEvent(login.map(l -> UserChangedEvent.of(id, l)).orElseGet(UserChangedEvent::anyUser));
+        login.ifPresent(l -> this.events.publishEvent(TokensRevokedEvent.now(l)));
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    private static ResponseStatusException notFound(int id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "User with ID %d not found".formatted(id));
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static ResponseEntity<Person> withETag(Person person) {
+        return ResponseEntity.ok().eTag(etag(person.getVersion())).body(person);
+    }
+
+    /**
+     * Served by the second-level cache in the common case, so checking the precondition is free.
+     */
+    private Person current(int id, String ifMatch) {
+        var person = this.persons.findById(id).orElseThrow(() -> notFound(id));
+        checkIfMatch(ifMatch, id, person.getVersion());
+        return person;
+    }
+
+    /**
+     * Strong comparison as required for If-Match: weak tags never match.
+     */
+    private static void checkIfMatch(String ifMatch, int id, long version) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return;
+        }
+        var etag = etag(version);
+        for (String tag : ifMatch.split(",")) {
+            if (etag.equals(tag.trim())) {
+                return;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                "User with ID %d has been modified".formatted(id));
+    }
+
+    private ResponseEntity<Person> patched(int id, Person current, String login, String password) {
+        var person = new Person(id,
+                login == null ? current.getLogin() : login,
+                password == null ? current.getPassword() : password);
+        person.setVersion(applyPatch(id, current, login, password));
+        return withETag(person);
+    }
+
+    /**
+     * One UPDATE of the changed columns guarded by the version read in {@link #current}. When no row
+     * is updated, the person is either gone (404) or was changed in between (409).
+     *
+     * @return the new version
+     */
+    private long applyPatch(int id, Person current, String login, String password) {
+        if (this.persons.patch(id, current.getVersion(), login, password) == 0) {
+            if (!this.persons.existsById(id)) {
+                throw notFound(id);
+            }
+            throw new ObjectOptimisticLockingFailureException(Person.class, id);
+        }
+        var oldLogin = current.getLogin();
+        this.events.publishEvent(UserChangedEvent.of(id, oldLogin));
+        boolean renamed = login != null && !Objects.equals(oldLogin, login);
+        if (renamed) {
+            this.events.publishEvent(UserChangedEvent.of(id, login));
+        }
+        if (password != null || renamed) {
+            this.events.publishEvent(TokensRevokedEvent.now(oldLogin));
+        }
+        return current.getVersion() + 1;
+    }
+}
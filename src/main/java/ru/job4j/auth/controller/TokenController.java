@@ -0,0 +1,43 @@
+package ru.job4j.auth.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.auth.dto.TokenDto;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.repository.person.UserRepository;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.HEADER_STRING;
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.TOKEN_PREFIX;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/token")
+public class TokenController {
+
+    public static final String REFRESH_URL = "/token/refresh";
+
+    private final RefreshTokenService refreshTokens;
+    private final AccessTokens accessTokens;
+    private final UserRepository users;
+
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenDto> refresh(@Valid @RequestBody TokenDto request) {
+        var rotation = refreshTokens.rotate(request.getRefreshToken()).orElse(null);
+        var user = rotation == null ? null : users.findByUsername(rotation.login());
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        var accessToken = accessTokens.issue(user.getLogin(), RoleAuthorities.of(user.getRoles()));
+        return ResponseEntity.ok()
+                .header(HEADER_STRING, TOKEN_PREFIX + accessToken)
+                .body(new TokenDto(rotation.refreshToken(), accessTokens.ttl().toSeconds()));
+    }
+}
@@ -1,36 +1,91 @@
 package ru.job4j.auth.controller;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.job4j.auth.Operation;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.event.UserChangedEvent;
 import ru.job4j.auth.model.Person;
-import ru.job4j.auth.repository.person.MemoryUserRepository;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+import ru.job4j.auth.repository.person.UserRepository;
+import ru.job4j.auth.stream.KeysetPage;
+import ru.job4j.auth.stream.NdjsonWriter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @Slf4j
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Validated
 @RequestMapping("/users")
 public class UserController {
 
-    private final MemoryUserRepository users;
-    private final BCryptPasswordEncoder encoder;
+    private final UserRepository users;
+    private final BoundedPasswordEncoder encoder;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final LoginThrottle throttle;
 
+    /**
+     * Saves after hashing, so the BCrypt threads never wait for a database connection.
+     */
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private final Executor saves;
+
+    @Value("${auth.page.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * The id is assigned by the repository, and a login that is taken is a conflict rather than a
+     * new password for that account.
+     */
     @PostMapping("/sign-up")
-    public ResponseEntity<Void> signUp(@Validated(Operation.OnCreate.class) @RequestBody Person person) {
-        person.setPassword(encoder.encode(person.getPassword()));
-        users.save(person);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> signUp(
+            @Validated(Operation.OnCreate.class) @RequestBody Person person, HttpServletRequest request) {
+        throttle.checkSignUp(request.getRemoteAddr());
+        person.setId(null);
+        return encoder.encodeAsync(person.getPassword())
+                .thenApplyAsync(hash -> {
+                    person.setPassword(hash);
+                    users.create(person);
+                    events.publishEvent(new UserChangedEvent(person.getLogin()));
+                    return ResponseEntity.ok().build();
+                }, saves);
     }
 
     @GetMapping("/all")
     public ResponseEntity<List<Person>> findAll() {
         return ResponseEntity.ok(users.findAll());
     }
+
+    @GetMapping(value = "/all", params = "limit")
+    public ResponseEntity<List<Person>> findPage(@RequestParam(defaultValue = "0") int after,
+                                                 @RequestParam int limit) {
+        int size = KeysetPage.limit(limit, maxLimit);
+        return KeysetPage.of(users.findPage(after, size), size);
+    }
+
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> {
+                    try (var ndjson = new NdjsonWriter(objectMapper, out)) {
+                        users.forEach(ndjson::write);
+                    }
+                });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ru.job4j.auth.crypto;
+
+import lombok.Getter;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+@Getter
+public class PasswordEncoderSaturatedException extends AuthenticationServiceException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordEncoderSaturatedException(long retryAfterSeconds) {
+        super("Password hashing pool is saturated");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.job4j.auth.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class DataSourceGuardConfig {
+
+    /**
+     * Wraps the pool when {@code auth.db.max-concurrency} is positive. Kept static and
+     * reading the {@link Environment} directly so the post-processor does not pull any
+     * other bean into early initialization.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceGuard(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                int maxConcurrency = env.getProperty("auth.db.max-concurrency", Integer.class, 0);
+                if (!(bean instanceof DataSource dataSource)
+                        || bean instanceof ConcurrencyLimitedDataSource
+                        || maxConcurrency <= 0) {
+                    return bean;
+                }
+                Duration timeout = env.getProperty("auth.db.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, timeout);
+            }
+        };
+    }
+}
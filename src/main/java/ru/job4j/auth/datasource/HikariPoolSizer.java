@@ -0,0 +1,92 @@
+package ru.job4j.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+
+/**
+ * Sizes the Hikari pool from the concurrency the service is configured for when
+ * {@code auth.db.pool.auto-size} is on and no explicit maximum pool size is set. Connections beyond
+ * {@code database cores * 2 + effective spindles} only queue inside PostgreSQL, and connections
+ * beyond the number of threads that can reach the database at once are never used, so the pool
+ * gets the smaller of the two and is kept at a fixed size. The cores are those of the database
+ * server, which this host cannot see, so {@code auth.db.pool.database-cores} must be set.
+ */
+@Slf4j
+public class HikariPoolSizer implements BeanPostProcessor {
+
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    static final String MINIMUM_IDLE = "spring.datasource.hikari.minimum-idle";
+
+    private final Environment env;
+
+    public HikariPoolSizer(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Runs before initialization, after the {@code spring.datasource.hikari} properties are bound
+     * and before the concurrency guard wraps the pool.
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource pool)
+                || !env.getProperty("auth.db.pool.auto-size", Boolean.class, false)
+                || env.containsProperty(MAXIMUM_POOL_SIZE)) {
+            return bean;
+        }
+        int size = size(concurrency(), databaseCores(),
+                env.getProperty("auth.db.pool.effective-spindles", Integer.class, 1));
+        pool.setMaximumPoolSize(size);
+        if (!env.containsProperty(MINIMUM_IDLE)) {
+            pool.setMinimumIdle(size);
+        }
+        log.info("Sized connection pool {} to {} connections", pool.getPoolName(), size);
+        return bean;
+    }
+
+    static int size(int concurrency, int databaseCores, int effectiveSpindles) {
+        return Math.max(1, Math.min(concurrency, databaseCores * 2 + effectiveSpindles));
+    }
+
+    /**
+     * The database permits when the guard is on, since every connection passes it. Otherwise the
+     * request threads plus the threads that hold connections outside a request: the application
+     * task executor runs the writes after hashing and the streamed exports, the scheduler the
+     * watermark sync and the cleanups. Virtual threads put no bound on it.
+     */
+    private int concurrency() {
+        int maxConcurrency = env.getProperty("auth.db.max-concurrency", Integer.class, 0);
+        if (maxConcurrency > 0) {
+            return maxConcurrency;
+        }
+        if (env.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            return Integer.MAX_VALUE;
+        }
+        long threads = (long) env.getProperty("server.tomcat.threads.max", Integer.class, 200)
+                + taskExecutorThreads()
+                + env.getProperty("spring.task.scheduling.pool.size", Integer.class, 1);
+        return (int) Math.min(Integer.MAX_VALUE, threads);
+    }
+
+    /**
+     * With the default unbounded queue the executor never grows past its core threads.
+     */
+    private int taskExecutorThreads() {
+        if (env.getProperty("spring.task.execution.pool.queue-capacity", Integer.class, Integer.MAX_VALUE)
+                == Integer.MAX_VALUE) {
+            return env.getProperty("spring.task.execution.pool.core-size", Integer.class, 8);
+        }
+        return env.getProperty("spring.task.execution.pool.max-size", Integer.class, Integer.MAX_VALUE);
+    }
+
+    private int databaseCores() {
+        int cores = env.getProperty("auth.db.pool.database-cores", Integer.class, 0);
+        if (cores <= 0) {
+            throw new IllegalStateException("auth.db.pool.database-cores must be set to the cores of the "
+                    + "database server when auth.db.pool.auto-size is on");
+        }
+        return cores;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.job4j.auth.datasource;
+
+import org.springframework.context.event.EventListener;
+import ru.job4j.auth.event.UserChangedEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when a read-only transaction must still read from the primary: for the whole of a
+ * request that changes data, for the requests of a client that changed data within a short window
+ * (see {@link ReadYourWritesFilter}), and for the requests of a user changed within that window,
+ * here or on another instance. The window outlasts the lag a replica may have while it is in
+ * rotation, so neither the writer nor the changed user reads back the state before the change.
+ * Only a change not known by login pins every request for the window.
+ */
+public class ReadYourWrites {
+
+    private final ThreadLocal<Boolean> pinnedThread = new ThreadLocal<>();
+    private final Map<String, Long> pinnedLogins = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private volatile long pinnedUntil;
+
+    public ReadYourWrites(Duration window) {
+        this.windowNanos = window.toNanos();
+        this.pinnedUntil = System.nanoTime();
+    }
+
+    public Duration window() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    public void pinCurrentThread() {
+        pinnedThread.set(Boolean.TRUE);
+    }
+
+    /**
+     * Pins the current thread when the login changed within the window.
+     *
+     * @return whether this call pinned it, so the caller knows to unpin
+     */
+    public boolean pinCurrentThread(String login) {
+        if (pinnedThread.get() != null || !pinned(login)) {
+            return false;
+        }
+        pinCurrentThread();
+        return true;
+    }
+
+    public void unpinCurrentThread() {
+        pinnedThread.remove();
+    }
+
+    public void pinAll() {
+        pinnedUntil = System.nanoTime() + windowNanos;
+    }
+
+    public void pin(String login) {
+        long now = System.nanoTime();
+        pinnedLogins.values().removeIf(until -> now - until >= 0);
+        pinnedLogins.put(login, now + windowNanos);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.isAnyUser()) {
+            pinAll();
+        } else {
+            pin(event.login());
+        }
+    }
+
+    public boolean primaryOnly() {
+        return pinnedThread.get() != null || System.nanoTime() - pinnedUntil < 0;
+    }
+
+    private boolean pinned(String login) {
+        Long until = login == null ? null : pinnedLogins.get(login);
+        return until != null && System.nanoTime() - until < 0;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.job4j.auth.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Keeps requests that change data on the primary from start to end. They read the row they are
+ * about to change, and with open-in-view the connection of that first read is also used for the
+ * write. Such a request also gets a cookie that keeps the client's requests on the primary for
+ * the window on whichever instance they land, and requests of a user changed within the window
+ * stay there too. Registered after the security filters, so the user lookup of /login, answered
+ * there, goes to a replica unless that user was changed.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "read-your-writes";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        boolean pinned;
+        if (!SAFE_METHODS.contains(req.getMethod())) {
+            long until = System.currentTimeMillis() + readYourWrites.window().toMillis();
+            res.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(until))
+                    .path("/")
+                    .httpOnly(true)
+                    .maxAge(readYourWrites.window().toSeconds() + 1)
+                    .build()
+                    .toString());
+            readYourWrites.pinCurrentThread();
+            pinned = true;
+        } else if (wroteRecently(req)) {
+            readYourWrites.pinCurrentThread();
+            pinned = true;
+        } else {
+            Principal user = req.getUserPrincipal();
+            pinned = user != null && readYourWrites.pinCurrentThread(user.getName());
+        }
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            if (pinned) {
+                readYourWrites.unpinCurrentThread();
+            }
+        }
+    }
+
+    /**
+     * A value further off than the window did not come from here and is ignored.
+     */
+    private boolean wroteRecently(HttpServletRequest req) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    return until > now && until <= now + readYourWrites.window().toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
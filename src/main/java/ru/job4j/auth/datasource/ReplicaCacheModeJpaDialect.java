@@ -0,0 +1,51 @@
+package ru.job4j.auth.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps a read-only transaction that may be routed to a replica from putting what it loads into
+ * the second-level cache. A lagging replica can still return a row as it was before a change, and
+ * once cached that row would outlive the lag by the region's time to live. Such a transaction still
+ * reads the cache, with the store mode set to bypass for its duration; one kept on the primary by
+ * {@link ReadYourWrites} fills it as usual.
+ */
+public class ReplicaCacheModeJpaDialect extends HibernateJpaDialect {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaCacheModeJpaDialect(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object data = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || readYourWrites.primaryOnly()) {
+            return data;
+        }
+        Object previous = entityManager.getProperties()
+                .getOrDefault(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.USE);
+        entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaTransactionData(data, entityManager, previous);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData replica) {
+            replica.entityManager().setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, replica.previous());
+            super.cleanupTransaction(replica.data());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReplicaTransactionData(Object data, EntityManager entityManager, Object previous) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.job4j.auth.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Off unless {@code auth.db.replicas.urls} lists at least one replica.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "auth.db.replicas.urls")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public static BeanPostProcessor replicaRouting(Environment env, ObjectProvider<ReadYourWrites> readYourWrites) {
+        return new ReplicaRoutingPostProcessor(env, readYourWrites);
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${auth.db.replicas.read-your-writes:5s}") Duration window) {
+        return new ReadYourWrites(window);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ReadYourWritesFilter readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new ReadYourWritesFilter(readYourWrites);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.job4j.auth.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Fetches the physical connection only at the first statement, once the transaction manager has
+ * marked the connection read-only or not, and takes it from the {@link ReplicaSet} for read-only
+ * transactions and from the primary otherwise. Closes both on shutdown, in place of the pool it
+ * replaces as the {@code dataSource} bean.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final ReplicaSet replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaSet replicas) {
+        super(primary);
+        setReadOnlyDataSource(replicas);
+        this.replicas = replicas;
+    }
+
+    ReplicaSet replicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        replicas.close();
+        if (getTargetDataSource() instanceof Closeable primary) {
+            primary.close();
+        }
+    }
+}
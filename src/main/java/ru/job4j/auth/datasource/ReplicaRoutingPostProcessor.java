@@ -0,0 +1,98 @@
+package ru.job4j.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts a {@link ReplicaRoutingDataSource} in place of the Hikari pool, with a pool per URL in
+ * {@code auth.db.replicas.urls} set up like the primary: the same {@code spring.datasource.hikari}
+ * settings, credentials unless {@code auth.db.replicas.username} and {@code password} are given,
+ * and size. Ordered, so it runs before the concurrency guard, which then wraps the routing data
+ * source and counts replica connections as well. Also gives the entity manager factory the
+ * {@link ReplicaCacheModeJpaDialect}.
+ */
+@Slf4j
+public class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+    private final Environment env;
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
+
+    public ReplicaRoutingPostProcessor(Environment env, ObjectProvider<ReadYourWrites> readYourWrites) {
+        this.env = env;
+        this.readYourWrites = readYourWrites;
+    }
+
+    /**
+     * Set before initialization, so the factory bean keeps it instead of the vendor adapter's
+     * dialect and hands it to the transaction manager.
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof AbstractEntityManagerFactoryBean factory) {
+            factory.setJpaDialect(new ReplicaCacheModeJpaDialect(readYourWrites.getObject()));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource primary)) {
+            return bean;
+        }
+        List<String> urls = Binder.get(env).bind("auth.db.replicas.urls", Bindable.listOf(String.class))
+                .orElse(List.of());
+        var pools = new ArrayList<DataSource>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            pools.add(replica(primary, urls.get(i), i));
+        }
+        var replicas = new ReplicaSet(primary, pools, readYourWrites.getObject(),
+                env.getProperty("auth.db.replicas.lag-query", ReplicaSet.POSTGRES_LAG_QUERY),
+                env.getProperty("auth.db.replicas.max-lag", Duration.class, Duration.ofSeconds(1)),
+                env.getProperty("auth.db.replicas.check-interval", Duration.class, Duration.ofSeconds(1)));
+        replicas.start();
+        log.info("Routing read-only transactions to {} replicas", pools.size());
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    /**
+     * Read-only, and started without a connection so a replica that is down does not stop the
+     * service from starting; the health check keeps it out of rotation until it answers.
+     */
+    private HikariDataSource replica(HikariDataSource primary, String url, int index) {
+        var pool = new HikariDataSource();
+        Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setJdbcUrl(url);
+        if (primary.getDriverClassName() != null) {
+            pool.setDriverClassName(primary.getDriverClassName());
+        }
+        pool.setUsername(env.getProperty("auth.db.replicas.username", primary.getUsername()));
+        pool.setPassword(env.getProperty("auth.db.replicas.password", primary.getPassword()));
+        pool.setPoolName((primary.getPoolName() == null ? "" : primary.getPoolName() + "-") + "replica-" + index);
+        pool.setMaximumPoolSize(primary.getMaximumPoolSize());
+        if (primary.getMinimumIdle() >= 0) {
+            pool.setMinimumIdle(primary.getMinimumIdle());
+        }
+        pool.setConnectionTimeout(env.getProperty("auth.db.replicas.connect-timeout", Duration.class,
+                Duration.ofSeconds(1)).toMillis());
+        pool.setInitializationFailTimeout(-1);
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
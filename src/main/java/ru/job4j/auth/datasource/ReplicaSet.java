@@ -0,0 +1,170 @@
+package ru.job4j.auth.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read-only side of {@link ReplicaRoutingDataSource}: hands out connections of the healthy
+ * replicas in turn, and of the primary when {@link ReadYourWrites} asks for it or no replica is
+ * healthy. A replica is healthy while its lag query answers within the maximum lag; one that fails
+ * to give a connection is taken out of rotation at once and comes back with the next good check.
+ */
+@Slf4j
+public class ReplicaSet extends AbstractDataSource implements Closeable {
+
+    /**
+     * Seconds since the last replayed transaction, or zero when the replica has replayed all it
+     * received, so an idle primary does not make its replicas look late. Zero on a primary. A
+     * replica whose WAL receiver is not streaming has received nothing new either, so it reports
+     * an infinite lag instead. The status is hidden from roles without {@code pg_read_all_stats};
+     * the check then only sees whether the receiver runs at all.
+     */
+    public static final String POSTGRES_LAG_QUERY = "select case"
+            + " when not pg_is_in_recovery() then 0"
+            + " when not exists (select 1 from pg_stat_wal_receiver"
+            + " where coalesce(status, 'streaming') = 'streaming') then 'infinity'::float8"
+            + " when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+            + " else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService health;
+
+    public ReplicaSet(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites,
+                      String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.readYourWrites = readYourWrites;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        var threads = new CustomizableThreadFactory("replica-health-");
+        threads.setDaemon(true);
+        this.health = Executors.newSingleThreadScheduledExecutor(threads);
+    }
+
+    /**
+     * Replicas start out of rotation and join after their first check.
+     */
+    public void start() {
+        health.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readYourWrites.primaryOnly()) {
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.healthy) {
+                    try {
+                        return replica.dataSource.getConnection();
+                    } catch (SQLException e) {
+                        replica.down(e.getMessage());
+                    }
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    void check() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, checkInterval.toSeconds()));
+                Duration lag = lag(statement);
+                if (lag.compareTo(maxLag) > 0) {
+                    replica.down("lag of " + lag.toMillis() + " ms");
+                } else {
+                    replica.up();
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.down(e.getMessage());
+            }
+        }
+    }
+
+    private Duration lag(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                throw new SQLException("Lag query returned no row");
+            }
+            double seconds = rs.getDouble(1);
+            if (Double.isInfinite(seconds)) {
+                throw new SQLException("WAL receiver is not streaming");
+            }
+            return Duration.ofMillis(Math.round(seconds * 1000));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        health.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile boolean checked;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void up() {
+            if (!healthy) {
+                healthy = true;
+                checked = true;
+                log.info("Replica {} is in rotation", dataSource);
+            }
+        }
+
+        /**
+         * Also logs the first failed check, so a replica that never joins says why.
+         */
+        private void down(String reason) {
+            if (healthy || !checked) {
+                healthy = false;
+                checked = true;
+                log.warn("Replica {} is out of rotation: {}", dataSource, reason);
+            }
+        }
+    }
+}
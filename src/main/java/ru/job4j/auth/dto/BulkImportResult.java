@@ -0,0 +1,17 @@
+package ru.job4j.auth.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    public record RowError(long row, String login, String message) {
+    }
+}
@@ -0,0 +1,4 @@
+package ru.job4j.auth.dto;
+
+public record Credentials(String login, String password) {
+}
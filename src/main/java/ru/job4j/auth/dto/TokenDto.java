@@ -0,0 +1,19 @@
+package ru.job4j.auth.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenDto {
+
+    @NotBlank(message = "Refresh token must not be empty")
+    private String refreshToken;
+
+    private Long expiresIn;
+}
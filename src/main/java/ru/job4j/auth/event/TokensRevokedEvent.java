@@ -0,0 +1,13 @@
+package ru.job4j.auth.event;
+
+import java.time.Instant;
+
+/**
+ * Access tokens of {@code login} issued before {@code notBefore} must be rejected.
+ */
+public record TokensRevokedEvent(String login, Instant notBefore) {
+
+    public static TokensRevokedEvent now(String login) {
+        return new TokensRevokedEvent(login, Instant.now());
+    }
+}
@@ -0,0 +1,26 @@
+package ru.job4j.auth.event;
+
+/**
+ * Published after a user record is written. A {@code null} login means the changed
+ * user is not known by login and every cached user must be dropped. The id, when known,
+ * lets the entity caches drop just that person. {@code remote} marks a change made by
+ * another instance and relayed here, which must not be relayed again.
+ */
+public record UserChangedEvent(String login, Integer id, boolean remote) {
+
+    public UserChangedEvent(String login) {
+        this(login, null, false);
+    }
+
+    public static UserChangedEvent of(int id, String login) {
+        return new UserChangedEvent(login, id, false);
+    }
+
+    public static UserChangedEvent anyUser() {
+        return new UserChangedEvent(null);
+    }
+
+    public boolean isAnyUser() {
+        return login == null;
+    }
+}
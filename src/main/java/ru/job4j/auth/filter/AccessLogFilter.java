@@ -0,0 +1,118 @@
+package ru.job4j.auth.filter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One structured line per request, written ahead of the security filters so it also covers
+ * /login and rejected tokens. Failed requests are always logged, successful ones are sampled.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "auth.access-log.enabled", havingValue = "true")
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    public static final String USER_ATTRIBUTE = AccessLogFilter.class.getName() + ".user";
+
+    private static final Logger LOG = LoggerFactory.getLogger("ru.job4j.auth.access");
+
+    private final double successSampleRate;
+
+    public AccessLogFilter(@Value("${auth.access-log.success-sample-rate:1.0}") double successSampleRate) {
+        this.successSampleRate = successSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(req, res);
+            failed = false;
+        } finally {
+            if (!failed && req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new CompletionListener(req, res, start));
+            } else {
+                log(req, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : res.getStatus(), start);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest req, int status, long start) {
+        if (status < 400 && !sampled()) {
+            return;
+        }
+        LOG.atInfo()
+                .setMessage("{} {} {}")
+                .addArgument(req.getMethod())
+                .addArgument(req.getRequestURI())
+                .addArgument(status)
+                .addKeyValue("http.method", req.getMethod())
+                .addKeyValue("url.path", req.getRequestURI())
+                .addKeyValue("http.status", status)
+                .addKeyValue("outcome", outcome(status))
+                .addKeyValue("duration.us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start))
+                .addKeyValue("user", req.getAttribute(USER_ATTRIBUTE))
+                .addKeyValue("client.ip", req.getRemoteAddr())
+                .log();
+    }
+
+    private boolean sampled() {
+        return successSampleRate >= 1.0
+                || successSampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+
+    private static String outcome(int status) {
+        if (status >= 500) {
+            return "server_error";
+        }
+        return status >= 400 ? "client_error" : "success";
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest req;
+        private final HttpServletResponse res;
+        private final long start;
+
+        private CompletionListener(HttpServletRequest req, HttpServletResponse res, long start) {
+            this.req = req;
+            this.res = res;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            log(req, res.getStatus(), start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
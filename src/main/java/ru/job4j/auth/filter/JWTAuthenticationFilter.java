@@ -1,36 +1,43 @@
 package ru.job4j.auth.filter;
 
-import com.auth0.jwt.JWT;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import ru.job4j.auth.model.Person;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
+import ru.job4j.auth.dto.Credentials;
+import ru.job4j.auth.dto.TokenDto;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.ratelimit.RateLimitedException;
+import ru.job4j.auth.service.RefreshTokenService;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Date;
-
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
-    public static final String SECRET = "SecretKeyToGenJWTs";
-    public static final long EXPIRATION_TIME = 864_000_000;
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/users/sign-up";
 
-    private final AuthenticationManager auth;
+    private final LoginAuthenticator authenticator;
+    private final LoginJson json;
+    private final AccessTokens accessTokens;
+    private final RefreshTokenService refreshTokens;
 
-    public JWTAuthenticationFilter(AuthenticationManager auth) {
-        this.auth = auth;
+    public JWTAuthenticationFilter(LoginAuthenticator authenticator, LoginJson json, AccessTokens accessTokens,
+                                   RefreshTokenService refreshTokens) {
+        this.authenticator = authenticator;
+        this.json = json;
+        this.accessTokens = accessTokens;
+        this.refreshTokens = refreshTokens;
         setFilterProcessesUrl("/login");
     }
 
@@ -38,27 +45,44 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
     public Authentication attemptAuthentication(HttpServletRequest req, HttpServletResponse res)
             throws AuthenticationException {
         try {
-            Person creds = new ObjectMapper().readValue(req.getInputStream(), Person.class);
-
-            return auth.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            creds.getLogin(),
-                            creds.getPassword(),
-                            new ArrayList<>()
-                    )
-            );
+            Credentials creds = json.read(req);
+            return authenticator.authenticate(req.getRemoteAddr(), creds.login(), creds.password());
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new MalformedLoginException("Unable to read login request", e);
         }
     }
 
     @Override
     protected void successfulAuthentication(HttpServletRequest req, HttpServletResponse res, FilterChain chain,
-                                            Authentication auth) {
-        String token = JWT.create()
-                .withSubject(((User) auth.getPrincipal()).getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(HMAC512(SECRET.getBytes()));
-        res.addHeader(HEADER_STRING, TOKEN_PREFIX + token);
+                                            Authentication auth) throws IOException {
+        String username = ((User) auth.getPrincipal()).getUsername();
+        req.setAttribute(AccessLogFilter.USER_ATTRIBUTE, username);
+        res.addHeader(HEADER_STRING, TOKEN_PREFIX + accessTokens.issue(username, auth.getAuthorities()));
+        res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        json.write(res.getOutputStream(),
+                new TokenDto(refreshTokens.issue(username), accessTokens.ttl().toSeconds()));
+    }
+
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest req, HttpServletResponse res,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof PasswordEncoderSaturatedException saturated) {
+            SecurityContextHolder.clearContext();
+            res.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(saturated.getRetryAfterSeconds()));
+            res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, saturated.getMessage());
+            return;
+        }
+        if (failed instanceof RateLimitedException limited) {
+            SecurityContextHolder.clearContext();
+            res.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(limited.getRetryAfterSeconds()));
+            res.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), limited.getMessage());
+            return;
+        }
+        if (failed instanceof MalformedLoginException) {
+            SecurityContextHolder.clearContext();
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, failed.getMessage());
+            return;
+        }
+        super.unsuccessfulAuthentication(req, res, failed);
     }
 }
@@ -1,9 +1,8 @@
 package ru.job4j.auth.filter;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
@@ -11,18 +10,28 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import ru.job4j.auth.cache.VerifiedTokenCache;
+import ru.job4j.auth.jwt.TokenVerifier;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import static ru.job4j.auth.filter.JWTAuthenticationFilter.HEADER_STRING;
-import static ru.job4j.auth.filter.JWTAuthenticationFilter.SECRET;
 import static ru.job4j.auth.filter.JWTAuthenticationFilter.TOKEN_PREFIX;
 
+/**
+ * Authenticates requests carrying a bearer access token. The header is read once and the scheme
+ * is matched in place; a verified token maps to its cached, shared authentication. A malformed,
+ * expired, badly signed or revoked token ends the request with 401.
+ */
 public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
 
-    public JWTAuthorizationFilter(AuthenticationManager authManager) {
+    public static final String INVALID_TOKEN = "Bearer error=\"invalid_token\"";
+
+    private final TokenVerifier verifier;
+
+    public JWTAuthorizationFilter(AuthenticationManager authManager, TokenVerifier verifier) {
         super(authManager);
+        this.verifier = verifier;
     }
 
     @Override
@@ -30,29 +39,28 @@ public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
                                     FilterChain chain) throws IOException, ServletException {
         String header = req.getHeader(HEADER_STRING);
 
-        if (header == null || !header.startsWith(TOKEN_PREFIX)) {
+        if (header == null || !header.regionMatches(true, 0, TOKEN_PREFIX, 0, TOKEN_PREFIX.length())) {
             chain.doFilter(req, res);
             return;
         }
 
-        UsernamePasswordAuthenticationToken authentication = getAuthentication(req);
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        VerifiedTokenCache.Verified verified = verify(header.substring(TOKEN_PREFIX.length()));
+        if (verified == null) {
+            SecurityContextHolder.clearContext();
+            res.setHeader(HttpHeaders.WWW_AUTHENTICATE, INVALID_TOKEN);
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        req.setAttribute(AccessLogFilter.USER_ATTRIBUTE, verified.subject());
+        SecurityContextHolder.getContext().setAuthentication(verified.authentication());
         chain.doFilter(req, res);
     }
 
-    private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest request) {
-        String token = request.getHeader(HEADER_STRING);
-        if (token != null) {
-            String user = JWT.require(Algorithm.HMAC512(SECRET.getBytes()))
-                    .build()
-                    .verify(token.replace(TOKEN_PREFIX, ""))
-                    .getSubject();
-
-            if (user != null) {
-                return new UsernamePasswordAuthenticationToken(
-                        user, null, new ArrayList<>());
-            }
+    private VerifiedTokenCache.Verified verify(String token) {
+        try {
+            return verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
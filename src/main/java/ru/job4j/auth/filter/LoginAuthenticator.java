@@ -0,0 +1,64 @@
+package ru.job4j.auth.filter;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import ru.job4j.auth.cache.LoginCache;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Checks one set of credentials. The rate limits are applied first, then the login cache, and
+ * only then does the check reach BCrypt through the {@link AuthenticationManager}.
+ */
+public class LoginAuthenticator {
+
+    private final AuthenticationManager auth;
+    private final LoginCache logins;
+    private final LoginThrottle throttle;
+    private final AuthMetrics metrics;
+
+    public LoginAuthenticator(AuthenticationManager auth, LoginCache logins, LoginThrottle throttle,
+                              AuthMetrics metrics) {
+        this.auth = auth;
+        this.logins = logins;
+        this.throttle = throttle;
+        this.metrics = metrics;
+    }
+
+    public Authentication authenticate(String ip, String login, String password) {
+        metrics.loginAttempt();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            throttle.checkLogin(ip, login);
+            Collection<? extends GrantedAuthority> cached = logins.authorities(login, password);
+            if (cached != null) {
+                success = true;
+                return UsernamePasswordAuthenticationToken.authenticated(new User(login, "", cached), null, cached);
+            }
+            long generation = logins.generation(login);
+            Authentication result = authenticate(login, password);
+            logins.put(login, password, result.getAuthorities(), generation);
+            success = true;
+            return result;
+        } finally {
+            metrics.login(success, start);
+        }
+    }
+
+    private Authentication authenticate(String login, String password) {
+        try {
+            return auth.authenticate(new UsernamePasswordAuthenticationToken(login, password, new ArrayList<>()));
+        } catch (BadCredentialsException e) {
+            throttle.loginFailed(login);
+            throw e;
+        }
+    }
+}
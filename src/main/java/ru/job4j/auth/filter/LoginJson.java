@@ -0,0 +1,98 @@
+package ru.job4j.auth.filter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import ru.job4j.auth.dto.Credentials;
+import ru.job4j.auth.dto.TokenDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * JSON of the login endpoint on top of the shared Spring {@link ObjectMapper}. Credentials are
+ * read with its streaming parser: only {@code login} and {@code password} are extracted and any
+ * other field is skipped without binding. Bodies over the size limit, malformed JSON and missing
+ * or non-string credentials are rejected with {@link MalformedLoginException}.
+ */
+public class LoginJson {
+
+    private final JsonFactory factory;
+    private final ObjectWriter tokenWriter;
+    private final int maxBodyBytes;
+
+    public LoginJson(ObjectMapper mapper, int maxBodyBytes) {
+        this.factory = mapper.getFactory();
+        this.tokenWriter = mapper.writerFor(TokenDto.class);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public int maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void write(OutputStream out, TokenDto tokens) throws IOException {
+        tokenWriter.writeValue(out, tokens);
+    }
+
+    public Credentials read(HttpServletRequest req) throws IOException {
+        if (req.getContentLengthLong() > maxBodyBytes) {
+            throw tooLarge();
+        }
+        return read(req.getInputStream());
+    }
+
+    public Credentials read(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            throw tooLarge();
+        }
+        try (JsonParser parser = factory.createParser(body)) {
+            return parse(parser);
+        } catch (JsonProcessingException e) {
+            throw new MalformedLoginException("Malformed login request", e);
+        }
+    }
+
+    private static Credentials parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new MalformedLoginException("Login request must be a JSON object");
+        }
+        String login = null;
+        String password = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("login".equals(field)) {
+                login = text(parser, value, field);
+            } else if ("password".equals(field)) {
+                password = text(parser, value, field);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+            throw new MalformedLoginException("Malformed login request");
+        }
+        if (login == null || password == null) {
+            throw new MalformedLoginException("Login and password are required");
+        }
+        return new Credentials(login, password);
+    }
+
+    private static String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new MalformedLoginException("Field " + field + " must be a string");
+        }
+        return parser.getText();
+    }
+
+    public MalformedLoginException tooLarge() {
+        return new MalformedLoginException("Login request body exceeds " + maxBodyBytes + " bytes");
+    }
+}
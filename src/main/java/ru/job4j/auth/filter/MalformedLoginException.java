@@ -0,0 +1,14 @@
+package ru.job4j.auth.filter;
+
+import org.springframework.security.core.AuthenticationException;
+
+public class MalformedLoginException extends AuthenticationException {
+
+    public MalformedLoginException(String msg) {
+        super(msg);
+    }
+
+    public MalformedLoginException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.job4j.auth.jwt;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Immutable authentication of a verified access token. Unlike
+ * {@code UsernamePasswordAuthenticationToken} it keeps the shared authority list from
+ * {@link RoleAuthorities} instead of copying it, so one instance can be cached with the token
+ * and reused by every request that presents it.
+ */
+public record AccessTokenAuthentication(String subject, List<GrantedAuthority> authorities)
+        implements Authentication {
+
+    @Override
+    public String getName() {
+        return subject;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return subject;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (!authenticated) {
+            throw new IllegalArgumentException("Access token authentication is immutable");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.job4j.auth.jwt;
+
+import com.auth0.jwt.JWT;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+public class AccessTokens {
+
+    /**
+     * Issue time in epoch milliseconds; {@code iat} has whole seconds only, too coarse to tell a
+     * token issued right after a password change from one issued right before it.
+     */
+    public static final String ISSUED_AT_MILLIS = "iat_ms";
+
+    private final SigningKeys keys;
+    private final Duration ttl;
+
+    public AccessTokens(SigningKeys keys, Duration ttl) {
+        this.keys = keys;
+        this.ttl = ttl;
+    }
+
+    public String issue(String login, Collection<? extends GrantedAuthority> authorities) {
+        SigningKey key = keys.current();
+        Instant now = Instant.now();
+        return JWT.create()
+                .withKeyId(key.kid())
+                .withSubject(login)
+                .withClaim(RoleAuthorities.CLAIM, RoleAuthorities.encode(authorities))
+                .withIssuedAt(now)
+                .withClaim(ISSUED_AT_MILLIS, now.toEpochMilli())
+                .withExpiresAt(now.plus(ttl))
+                .sign(key.algorithm());
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+}
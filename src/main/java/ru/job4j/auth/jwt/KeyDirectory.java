@@ -0,0 +1,74 @@
+package ru.job4j.auth.jwt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Signing keys kept as PEM files in a directory every node mounts, such as a shared secret
+ * volume: {@code <kid>.key} holds the PKCS#8 private key and {@code <kid>.pub} the X.509 public
+ * key, as written by {@code openssl genpkey} and {@code openssl pkey -pubout}. Kids sort in
+ * rotation order, so dated names such as {@code 2026-10-18} work. All nodes read the same files,
+ * so they sign and verify with the same keys after a restart.
+ */
+public class KeyDirectory implements SigningKeys.Source {
+
+    private static final String PRIVATE = ".key";
+    private static final String PUBLIC = ".pub";
+
+    private final Path directory;
+    private final String algorithm;
+    private final KeyFactory factory;
+
+    public KeyDirectory(Path directory, String algorithm) {
+        this.directory = directory;
+        this.algorithm = algorithm;
+        try {
+            this.factory = KeyFactory.getInstance(SigningKey.ES256.equals(algorithm) ? "EC" : "RSA");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the keys in rotation order; fails when a private key has no public key next to it
+     */
+    @Override
+    public List<SigningKey> load() throws IOException, GeneralSecurityException {
+        List<String> kids;
+        try (Stream<Path> files = Files.list(directory)) {
+            kids = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(PRIVATE))
+                    .map(name -> name.substring(0, name.length() - PRIVATE.length()))
+                    .sorted()
+                    .toList();
+        }
+        List<SigningKey> keys = new ArrayList<>(kids.size());
+        for (String kid : kids) {
+            KeyPair pair = new KeyPair(
+                    factory.generatePublic(new X509EncodedKeySpec(pem(directory.resolve(kid + PUBLIC)))),
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(pem(directory.resolve(kid + PRIVATE)))));
+            keys.add(SigningKey.of(kid, algorithm, pair));
+        }
+        return keys;
+    }
+
+    private static byte[] pem(Path file) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.startsWith("-----")) {
+                body.append(line.strip());
+            }
+        }
+        return Base64.getDecoder().decode(body.toString());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.job4j.auth.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import ru.job4j.auth.model.Role;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes roles as a bit mask for the {@value #CLAIM} claim and decodes a mask back into one of
+ * the pre-built, immutable authority lists, so decoding allocates nothing.
+ */
+public final class RoleAuthorities {
+
+    public static final String CLAIM = "rol";
+
+    private static final Role[] ROLES = Role.values();
+    private static final GrantedAuthority[] AUTHORITIES = new GrantedAuthority[ROLES.length];
+    private static final List<List<GrantedAuthority>> BY_MASK = new ArrayList<>(1 << ROLES.length);
+
+    static {
+        for (Role role : ROLES) {
+            AUTHORITIES[role.ordinal()] = new SimpleGrantedAuthority("ROLE_" + role.name());
+        }
+        for (int mask = 0; mask < 1 << ROLES.length; mask++) {
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            for (Role role : ROLES) {
+                if ((mask & (1 << role.ordinal())) != 0) {
+                    authorities.add(AUTHORITIES[role.ordinal()]);
+                }
+            }
+            BY_MASK.add(List.copyOf(authorities));
+        }
+    }
+
+    private RoleAuthorities() {
+    }
+
+    public static List<GrantedAuthority> of(Collection<Role> roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= 1 << role.ordinal();
+        }
+        return decode(mask);
+    }
+
+    public static int encode(Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            for (Role role : ROLES) {
+                if (AUTHORITIES[role.ordinal()].getAuthority().equals(authority.getAuthority())) {
+                    mask |= 1 << role.ordinal();
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Unknown bits, e.g. from a role added by a newer node, are ignored.
+     */
+    public static List<GrantedAuthority> decode(int mask) {
+        return BY_MASK.get(mask & ((1 << ROLES.length) - 1));
+    }
+}
@@ -0,0 +1,120 @@
+package ru.job4j.auth.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.RegisteredClaims;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * One signing key together with its prepared verifier and public JWK. A shared secret has no JWK,
+ * it is never published.
+ */
+public record SigningKey(String kid, Algorithm algorithm, JWTVerifier verifier, Map<String, String> jwk) {
+
+    public static final String HS256 = "HS256";
+    public static final String RS256 = "RS256";
+    public static final String ES256 = "ES256";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    public static SigningKey sharedSecret(String secret) {
+        return of(HS256, Algorithm.HMAC256(secret), null);
+    }
+
+    /**
+     * @param pair an RSA pair for {@link #RS256} or a P-256 pair for {@link #ES256}
+     */
+    public static SigningKey of(String kid, String algorithm, KeyPair pair) {
+        return switch (algorithm) {
+            case RS256 -> rsa(kid, pair);
+            case ES256 -> ec(kid, pair);
+            default -> throw new IllegalArgumentException("Unsupported signing algorithm " + algorithm);
+        };
+    }
+
+    /**
+     * A key pair with a random kid, known to this process only; for tests and benchmarks.
+     */
+    public static SigningKey generate(String algorithm) {
+        try {
+            KeyPairGenerator generator;
+            if (ES256.equals(algorithm)) {
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+            }
+            return of(newKid(), algorithm, generator.generateKeyPair());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate a " + algorithm + " key pair", e);
+        }
+    }
+
+    private static SigningKey rsa(String kid, KeyPair pair) {
+        RSAPublicKey pub = (RSAPublicKey) pair.getPublic();
+        return of(kid, Algorithm.RSA256(pub, (RSAPrivateKey) pair.getPrivate()), Map.of(
+                "kty", "RSA",
+                "use", "sig",
+                "alg", RS256,
+                "kid", kid,
+                "n", base64(pub.getModulus(), 0),
+                "e", base64(pub.getPublicExponent(), 0)
+        ));
+    }
+
+    private static SigningKey ec(String kid, KeyPair pair) {
+        ECPublicKey pub = (ECPublicKey) pair.getPublic();
+        return of(kid, Algorithm.ECDSA256(pub, (ECPrivateKey) pair.getPrivate()), Map.of(
+                "kty", "EC",
+                "use", "sig",
+                "alg", ES256,
+                "kid", kid,
+                "crv", "P-256",
+                "x", base64(pub.getW().getAffineX(), 32),
+                "y", base64(pub.getW().getAffineY(), 32)
+        ));
+    }
+
+    private static SigningKey of(String kid, Algorithm algorithm, Map<String, String> jwk) {
+        return new SigningKey(kid, algorithm,
+                JWT.require(algorithm).withClaimPresence(RegisteredClaims.ISSUED_AT).build(), jwk);
+    }
+
+    private static String newKid() {
+        byte[] bytes = new byte[12];
+        RANDOM.nextBytes(bytes);
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    /**
+     * Unsigned big-endian encoding as required by RFC 7518, left-padded to {@code length} when positive.
+     */
+    private static String base64(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return BASE64_URL.encodeToString(bytes);
+    }
+}
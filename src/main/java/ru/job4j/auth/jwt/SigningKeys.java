@@ -0,0 +1,124 @@
+package ru.job4j.auth.jwt;
+
+import com.auth0.jwt.JWTVerifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key ring for token signing, loaded from a {@link Source} shared by every node. Of the keys in
+ * rotation order the last one is the next key: it is already published in the JWKS so that
+ * caches pick it up, but signs nothing until a newer key is added. The one before it is the
+ * current key, and all older keys keep verifying until they are removed from the source, which
+ * should not happen before the access token TTL has passed since they stopped signing. Readers
+ * only see immutable snapshots.
+ */
+@Slf4j
+public class SigningKeys {
+
+    private final Source source;
+    private volatile Snapshot snapshot;
+
+    public SigningKeys(Source source) {
+        this.source = source;
+        try {
+            this.snapshot = Snapshot.of(source.load());
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load the signing keys", e);
+        }
+    }
+
+    /**
+     * A ring with a single HS256 key; nothing is published and every node needs the same secret.
+     */
+    public static SigningKeys sharedSecret(String secret) {
+        SigningKey key = SigningKey.sharedSecret(secret);
+        return new SigningKeys(() -> List.of(key));
+    }
+
+    public SigningKey current() {
+        return snapshot.current();
+    }
+
+    /**
+     * @return the verifier for {@code kid}, or null when the key is unknown or already dropped
+     */
+    public JWTVerifier verifier(String kid) {
+        return kid == null ? null : snapshot.verifiers().get(kid);
+    }
+
+    public Jwks jwks() {
+        return snapshot.jwks();
+    }
+
+    /**
+     * Rereads the source. A source that cannot be read, e.g. while a key is half written, keeps
+     * the previous keys until the next attempt.
+     */
+    @Scheduled(fixedDelayString = "${auth.jwt.key-reload-interval:1m}",
+            initialDelayString = "${auth.jwt.key-reload-interval:1m}")
+    public synchronized void reload() {
+        try {
+            Snapshot loaded = Snapshot.of(source.load());
+            if (!loaded.jwks().etag().equals(snapshot.jwks().etag())) {
+                snapshot = loaded;
+                log.info("Signing with key {}, {} keys verifying", loaded.current().kid(), loaded.verifiers().size());
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.warn("Cannot reload the signing keys, keeping {}", snapshot.verifiers().keySet(), e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * @return the keys in rotation order, the newest last
+         */
+        List<SigningKey> load() throws IOException, GeneralSecurityException;
+    }
+
+    public record Jwks(String etag, Map<String, List<Map<String, String>>> body) {
+    }
+
+    private record Snapshot(SigningKey current, Map<String, JWTVerifier> verifiers, Jwks jwks) {
+
+        static Snapshot of(List<SigningKey> keys) {
+            if (keys.isEmpty()) {
+                throw new IllegalStateException("No signing keys");
+            }
+            SigningKey current = keys.get(Math.max(0, keys.size() - 2));
+            Map<String, JWTVerifier> verifiers = new HashMap<>();
+            List<Map<String, String>> published = new ArrayList<>();
+            StringBuilder kids = new StringBuilder();
+            for (SigningKey key : keys) {
+                verifiers.put(key.kid(), key.verifier());
+                if (key.jwk() != null) {
+                    published.add(key.jwk());
+                }
+                kids.append(key.kid()).append(',');
+            }
+            return new Snapshot(current, Map.copyOf(verifiers),
+                    new Jwks(etag(kids.toString()), Map.of("keys", List.copyOf(published))));
+        }
+
+        private static String etag(String kids) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(kids.getBytes(StandardCharsets.UTF_8));
+                return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.job4j.auth.jwt;
+
+import org.springframework.context.event.EventListener;
+import ru.job4j.auth.event.TokensRevokedEvent;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-login watermarks in epoch milliseconds: an access token issued before the watermark of its
+ * subject is revoked, one issued in the same millisecond or later is not. The per-request check is
+ * a single map read keyed by the subject string the verifier already holds. Revocations made on
+ * other nodes arrive through {@link TokenWatermarkSync}; entries older than the access token
+ * lifetime are pruned.
+ */
+public class TokenRevocations {
+
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    public boolean isRevoked(String login, long issuedAtMillis) {
+        Long watermark = notBefore.get(login);
+        return watermark != null && issuedAtMillis < watermark;
+    }
+
+    public void revoke(String login, Instant before) {
+        notBefore.merge(login, before.toEpochMilli(), Math::max);
+    }
+
+    @EventListener
+    public void onRevoked(TokensRevokedEvent event) {
+        revoke(event.login(), event.notBefore());
+    }
+
+    public void pruneBefore(Instant cutoff) {
+        long millis = cutoff.toEpochMilli();
+        notBefore.values().removeIf(watermark -> watermark < millis);
+    }
+
+    public int size() {
+        return notBefore.size();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.job4j.auth.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import ru.job4j.auth.cache.VerifiedTokenCache;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+/**
+ * Resolves an access token to its subject and authorities: verified-token cache first, then the
+ * verifier picked by {@code kid}, and finally the revocation watermark of the subject.
+ */
+public class TokenVerifier {
+
+    private final SigningKeys keys;
+    private final VerifiedTokenCache tokens;
+    private final TokenRevocations revocations;
+    private final AuthMetrics metrics;
+
+    public TokenVerifier(SigningKeys keys, VerifiedTokenCache tokens, TokenRevocations revocations,
+                         AuthMetrics metrics) {
+        this.keys = keys;
+        this.tokens = tokens;
+        this.revocations = revocations;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the verified token, or null when it has been revoked
+     * @throws JWTVerificationException when the token is malformed, expired or badly signed
+     */
+    public VerifiedTokenCache.Verified verify(String token) {
+        long start = System.nanoTime();
+        VerifiedTokenCache.Verified verified = tokens.get(token);
+        if (verified != null) {
+            metrics.tokenVerified(true, start);
+            return notRevoked(verified);
+        }
+        DecodedJWT jwt = decode(token);
+        Integer roles = jwt.getClaim(RoleAuthorities.CLAIM).asInt();
+        Long issuedAt = jwt.getClaim(AccessTokens.ISSUED_AT_MILLIS).asLong();
+        verified = new VerifiedTokenCache.Verified(
+                issuedAt != null ? issuedAt : jwt.getIssuedAtAsInstant().toEpochMilli(),
+                new AccessTokenAuthentication(jwt.getSubject(), RoleAuthorities.decode(roles == null ? 0 : roles)));
+        if (verified.subject() != null && jwt.getExpiresAtAsInstant() != null) {
+            tokens.put(token, verified, jwt.getExpiresAtAsInstant().toEpochMilli());
+        }
+        metrics.tokenVerified(false, start);
+        return notRevoked(verified);
+    }
+
+    private VerifiedTokenCache.Verified notRevoked(VerifiedTokenCache.Verified verified) {
+        if (verified.subject() == null) {
+            return null;
+        }
+        if (revocations.isRevoked(verified.subject(), verified.issuedAtMillis())) {
+            metrics.tokenRevoked();
+            return null;
+        }
+        return verified;
+    }
+
+    private DecodedJWT decode(String token) {
+        try {
+            DecodedJWT jwt = JWT.decode(token);
+            JWTVerifier verifier = keys.verifier(jwt.getKeyId());
+            if (verifier == null) {
+                throw new JWTVerificationException("Unknown signing key " + jwt.getKeyId());
+            }
+            return verifier.verify(jwt);
+        } catch (TokenExpiredException e) {
+            metrics.tokenExpired();
+            throw e;
+        } catch (JWTVerificationException e) {
+            metrics.tokenInvalid();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.job4j.auth.jwt;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.model.TokenWatermark;
+import ru.job4j.auth.repository.token.TokenWatermarkRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps {@link TokenRevocations} of every node in step through the {@code token_watermark} table:
+ * local revocations are written there and rows changed since the last poll are read back.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenWatermarkSync {
+
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final TokenWatermarkRepository watermarks;
+    private final TokenRevocations revocations;
+
+    @Value("${auth.jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
+    private volatile Instant seen = Instant.EPOCH;
+
+    /**
+     * Runs once the revoking transaction has committed, in a transaction of its own, so the
+     * request does not hold its row locks while the watermark is written.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onRevoked(TokensRevokedEvent event) {
+        Instant notBefore = watermarks.findById(event.login())
+                .map(TokenWatermark::getNotBefore)
+                .filter(existing -> existing.isAfter(event.notBefore()))
+                .orElse(event.notBefore());
+        watermarks.save(new TokenWatermark(event.login(), notBefore, Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.jwt.revocation-poll-interval:5s}")
+    public void poll() {
+        Instant latest = seen;
+        for (TokenWatermark watermark : watermarks.findByUpdatedAtAfterOrderByUpdatedAtAsc(latest.minus(CLOCK_SKEW))) {
+            revocations.revoke(watermark.getLogin(), watermark.getNotBefore());
+            if (watermark.getUpdatedAt().isAfter(latest)) {
+                latest = watermark.getUpdatedAt();
+            }
+        }
+        seen = latest;
+        revocations.pruneBefore(Instant.now().minus(accessTokenTtl));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.jwt.cleanup-interval:1h}")
+    @Transactional
+    public void cleanup() {
+        watermarks.deleteOlderThan(Instant.now().minus(accessTokenTtl));
+    }
+}
@@ -0,0 +1,48 @@
+package ru.job4j.auth.logging;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most {@code permitsPerSecond} log statements through per one-second window
+ * and counts what it held back, so the next permitted line can report it.
+ */
+public class LogRateLimiter {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final long permitsPerSecond;
+    private final Clock clock;
+    private final AtomicLong windowStart;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogRateLimiter(long permitsPerSecond) {
+        this(permitsPerSecond, Clock.systemUTC());
+    }
+
+    public LogRateLimiter(long permitsPerSecond, Clock clock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.clock = clock;
+        this.windowStart = new AtomicLong(clock.millis());
+    }
+
+    /**
+     * A clock set back also starts a new window, so it cannot hold logging back for long.
+     *
+     * @return -1 when the statement must be dropped, otherwise the number of statements
+     * dropped since the previous permitted one
+     */
+    public long tryAcquire() {
+        long now = clock.millis();
+        long start = windowStart.get();
+        if ((now - start >= WINDOW_MILLIS || now < start) && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() > permitsPerSecond) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.job4j.auth.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.job4j.auth.cache.CacheStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the authentication path. Everything is registered once up front and
+ * recorded from raw {@link System#nanoTime()} deltas, so the request path allocates nothing.
+ */
+public class AuthMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter loginAttempts;
+    private final Timer loginSuccess;
+    private final Timer loginFailure;
+    private final Timer tokenCached;
+    private final Timer tokenVerified;
+    private final Counter tokenExpired;
+    private final Counter tokenInvalid;
+    private final Counter tokenRevoked;
+    private final Timer userLookup;
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.loginAttempts = Counter.builder("auth.login.attempts").register(registry);
+        this.loginSuccess = timer("auth.login", "outcome", "success");
+        this.loginFailure = timer("auth.login", "outcome", "failure");
+        this.tokenCached = timer("auth.token.verify", "source", "cache");
+        this.tokenVerified = timer("auth.token.verify", "source", "signature");
+        this.tokenExpired = Counter.builder("auth.token.rejected").tag("reason", "expired").register(registry);
+        this.tokenInvalid = Counter.builder("auth.token.rejected").tag("reason", "invalid").register(registry);
+        this.tokenRevoked = Counter.builder("auth.token.rejected").tag("reason", "revoked").register(registry);
+        this.userLookup = timer("auth.user.lookup", "source", "repository");
+    }
+
+    public Timer timer(String name, String tagKey, String tagValue) {
+        return Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public Counter counter(String name, String tagKey, String tagValue) {
+        return Counter.builder(name)
+                .tag(tagKey, tagValue)
+                .register(registry);
+    }
+
+    public void monitor(String cache, CacheStatistics statistics) {
+        Gauge.builder("auth.cache.size", statistics, CacheStatistics::size)
+                .tag("cache", cache).register(registry);
+        FunctionCounter.builder("auth.cache.hits", statistics, CacheStatistics::hits)
+                .tag("cache", cache).register(registry);
+        FunctionCounter.builder("auth.cache.misses", statistics, CacheStatistics::misses)
+                .tag("cache", cache).register(registry);
+        FunctionCounter.builder("auth.cache.evictions", statistics, CacheStatistics::evictions)
+                .tag("cache", cache).register(registry);
+    }
+
+    public void loginAttempt() {
+        loginAttempts.increment();
+    }
+
+    public void login(boolean success, long startNanos) {
+        record(success ? loginSuccess : loginFailure, startNanos);
+    }
+
+    public void tokenVerified(boolean cached, long startNanos) {
+        record(cached ? tokenCached : tokenVerified, startNanos);
+    }
+
+    public void tokenExpired() {
+        tokenExpired.increment();
+    }
+
+    public void tokenInvalid() {
+        tokenInvalid.increment();
+    }
+
+    public void tokenRevoked() {
+        tokenRevoked.increment();
+    }
+
+    public void userLookup(long startNanos) {
+        record(userLookup, startNanos);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
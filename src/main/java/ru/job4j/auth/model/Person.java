@@ -1,29 +1,45 @@
 package ru.job4j.auth.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import ru.job4j.auth.Operation;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+
+import java.util.EnumSet;
+import java.util.Set;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Entity
 @Table(name = "person")
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PERSON)
+@NaturalIdCache(region = SecondLevelCacheConfig.PERSON_LOGIN)
 public class Person {
 
     @Id
     @EqualsAndHashCode.Include
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_id_seq", allocationSize = 50)
     @NotNull(message = "Id must be non null", groups = {Operation.OnUpdate.class})
     private Integer id;
 
+    @NaturalId(mutable = true)
     @NotBlank(message = "Username must be empty", groups = {Operation.OnCreate.class, Operation.OnUpdate.class})
     private String login;
 
@@ -31,4 +47,30 @@ public class Person {
     @Size(min = 6, message = "Password length must be at least 6 characters",
             groups = {Operation.OnCreate.class, Operation.OnUpdate.class})
     private String password;
+
+    /**
+     * Optimistic lock; exposed to clients only as the ETag of the person.
+     */
+    @JsonIgnore
+    @Version
+    private long version;
+
+    /**
+     * Not bound from or written to JSON, so a client can neither see nor grant itself roles.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PERSON_ROLES)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "person_roles", joinColumns = @JoinColumn(name = "person_id"))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role")
+    private Set<Role> roles = EnumSet.of(Role.USER);
+
+    public Person(Integer id, String login, String password) {
+        this.id = id;
+        this.login = login;
+        this.password = password;
+    }
 }
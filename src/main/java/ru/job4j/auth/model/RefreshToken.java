@@ -0,0 +1,32 @@
+package ru.job4j.auth.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Only the SHA-256 digest of a refresh token is stored, a token is single use.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_token")
+public class RefreshToken {
+
+    @Id
+    private String id;
+
+    private String login;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    private boolean used;
+}
@@ -0,0 +1,9 @@
+package ru.job4j.auth.model;
+
+/**
+ * The ordinal is the bit of the role in the token's role mask, so constants may only be appended.
+ */
+public enum Role {
+    USER,
+    ADMIN
+}
@@ -0,0 +1,28 @@
+package ru.job4j.auth.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "token_watermark")
+public class TokenWatermark {
+
+    @Id
+    private String login;
+
+    @Column(name = "not_before")
+    private Instant notBefore;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,68 @@
+package ru.job4j.auth.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Limits logins per client IP, failed logins per login and sign-ups per client IP. All checks
+ * run before any password is hashed. The wait reported to a client grows with the number of
+ * attempts it keeps making over the limit; for a login, every rejected attempt counts as a
+ * failure, so guessing on against a locked login keeps it locked.
+ */
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final SlidingWindowLimiter loginsPerIp;
+    private final SlidingWindowLimiter failuresPerLogin;
+    private final SlidingWindowLimiter signUpsPerIp;
+    private final Counter ipRejected;
+    private final Counter loginRejected;
+    private final Counter signUpRejected;
+
+    public LoginThrottle(boolean enabled, Duration window, int loginsPerIp, int failuresPerLogin,
+                         int signUpsPerIp, int sketchWidth, AuthMetrics metrics) {
+        this.enabled = enabled;
+        this.loginsPerIp = new SlidingWindowLimiter(loginsPerIp, window, sketchWidth, Clock.systemUTC());
+        this.failuresPerLogin = new SlidingWindowLimiter(failuresPerLogin, window, sketchWidth, Clock.systemUTC());
+        this.signUpsPerIp = new SlidingWindowLimiter(signUpsPerIp, window, sketchWidth, Clock.systemUTC());
+        this.ipRejected = metrics.counter("auth.ratelimit.rejected", "limit", "ip");
+        this.loginRejected = metrics.counter("auth.ratelimit.rejected", "limit", "login");
+        this.signUpRejected = metrics.counter("auth.ratelimit.rejected", "limit", "sign-up");
+    }
+
+    public void checkLogin(String ip, String login) {
+        if (!enabled) {
+            return;
+        }
+        reject(ipRejected, loginsPerIp.acquire(ip));
+        if (login != null) {
+            long retryAfter = failuresPerLogin.check(login);
+            if (retryAfter > 0) {
+                failuresPerLogin.record(login);
+            }
+            reject(loginRejected, retryAfter);
+        }
+    }
+
+    public void loginFailed(String login) {
+        if (enabled && login != null) {
+            failuresPerLogin.record(login);
+        }
+    }
+
+    public void checkSignUp(String ip) {
+        if (enabled) {
+            reject(signUpRejected, signUpsPerIp.acquire(ip));
+        }
+    }
+
+    private static void reject(Counter rejected, long retryAfterSeconds) {
+        if (retryAfterSeconds > 0) {
+            rejected.increment();
+            throw new RateLimitedException(retryAfterSeconds);
+        }
+    }
+}
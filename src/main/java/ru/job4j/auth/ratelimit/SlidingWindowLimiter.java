@@ -0,0 +1,140 @@
+package ru.job4j.auth.ratelimit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Approximate per-key sliding-window counter with a fixed memory footprint. Hits are kept in two
+ * count-min sketches, one for the current and one for the previous window. The estimate weights
+ * the previous window by how much of it still overlaps the sliding window. Sketch cells are
+ * updated lock-free with conservative update. The only lock is taken once per window, to recycle
+ * the oldest sketch. Counts may be overestimated but never underestimated. With conservative
+ * update the error stays well below {@code hitsPerWindow / width}.
+ */
+public class SlidingWindowLimiter {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int limit;
+    private final long windowMillis;
+    private final int width;
+    private final Clock clock;
+    private final AtomicReference<Windows> windows;
+
+    public SlidingWindowLimiter(int limit, Duration window, int width, Clock clock) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two: " + width);
+        }
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.width = width;
+        this.clock = clock;
+        this.windows = new AtomicReference<>(new Windows(
+                new AtomicIntegerArray(DEPTH * width), new AtomicIntegerArray(DEPTH * width), clock.millis()));
+    }
+
+    /**
+     * Counts a hit for {@code key}.
+     *
+     * @return 0 when the hit is within the limit, otherwise the seconds until it would have been
+     */
+    public long acquire(String key) {
+        long now = clock.millis();
+        Windows w = windows(now);
+        int hash = key.hashCode();
+        increment(w.current(), hash);
+        return retryAfterSeconds(w, hash, now, 0);
+    }
+
+    /**
+     * @return 0 when one more hit for {@code key} would be within the limit, otherwise the seconds
+     * until it would be; nothing is counted
+     */
+    public long check(String key) {
+        long now = clock.millis();
+        Windows w = windows(now);
+        return retryAfterSeconds(w, key.hashCode(), now, 1);
+    }
+
+    public void record(String key) {
+        increment(windows(clock.millis()).current(), key.hashCode());
+    }
+
+    private long retryAfterSeconds(Windows w, int hash, long now, int extra) {
+        long remaining = Math.max(0, windowMillis - (now - w.start()));
+        int current = estimate(w.current(), hash);
+        int previous = estimate(w.previous(), hash);
+        double count = (double) previous * remaining / windowMillis + current + extra;
+        if (count <= limit) {
+            return 0;
+        }
+        double waitMillis;
+        if (current + extra <= limit) {
+            waitMillis = remaining - (double) windowMillis * (limit - current - extra) / previous;
+        } else if (limit - extra < 0) {
+            waitMillis = remaining + windowMillis;
+        } else {
+            waitMillis = remaining + windowMillis * (1 - (double) (limit - extra) / current);
+        }
+        return Math.max(1, (long) Math.ceil(waitMillis / 1000));
+    }
+
+    private void increment(AtomicIntegerArray sketch, int hash) {
+        int target = estimate(sketch, hash) + 1;
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = cell(hash, row);
+            if (sketch.get(cell) < target) {
+                sketch.accumulateAndGet(cell, target, Math::max);
+            }
+        }
+    }
+
+    private int estimate(AtomicIntegerArray sketch, int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch.get(cell(hash, row)));
+        }
+        return min;
+    }
+
+    private int cell(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9E3779B1;
+        h ^= h >>> 15;
+        h *= 0x85EBCA77;
+        h ^= h >>> 13;
+        return row * width + (h & (width - 1));
+    }
+
+    private Windows windows(long now) {
+        Windows w = windows.get();
+        return now - w.start() < windowMillis ? w : rotate(now);
+    }
+
+    private synchronized Windows rotate(long now) {
+        Windows w = windows.get();
+        long periods = (now - w.start()) / windowMillis;
+        if (periods == 0) {
+            return w;
+        }
+        AtomicIntegerArray next = w.previous();
+        clear(next);
+        if (periods > 1) {
+            clear(w.current());
+        }
+        Windows rotated = new Windows(next, w.current(), w.start() + periods * windowMillis);
+        windows.set(rotated);
+        return rotated;
+    }
+
+    private static void clear(AtomicIntegerArray sketch) {
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.set(i, 0);
+        }
+    }
+
+    private record Windows(AtomicIntegerArray current, AtomicIntegerArray previous, long start) {
+    }
+}
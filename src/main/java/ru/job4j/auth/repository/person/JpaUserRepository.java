@@ -0,0 +1,54 @@
+package ru.job4j.auth.repository.person;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import ru.job4j.auth.model.Person;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads users through {@link PersonRepository#findByLogin}, which the second-level natural-id cache
+ * already answers without SQL; no cache of its own is kept on top.
+ */
+@Repository
+@Profile("!memory & !offheap")
+@AllArgsConstructor
+public class JpaUserRepository implements UserRepository {
+
+    private final PersonRepository persons;
+    private final PersonCursor cursor;
+
+    @Override
+    public void save(Person person) {
+        persons.save(person);
+    }
+
+    @Override
+    public void create(Person person) {
+        person.setId(null);
+        persons.save(person);
+    }
+
+    @Override
+    public Person findByUsername(String username) {
+        return persons.findByLogin(username).orElse(null);
+    }
+
+    @Override
+    public List<Person> findAll() {
+        return (List<Person>) persons.findAll();
+    }
+
+    @Override
+    public List<Person> findPage(int afterId, int limit) {
+        return persons.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
+    @Override
+    public void forEach(Consumer<Person> action) {
+        cursor.forEach(action);
+    }
+}
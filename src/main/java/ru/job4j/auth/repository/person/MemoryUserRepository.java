@@ -1,21 +1,46 @@
 package ru.job4j.auth.repository.person;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 import ru.job4j.auth.model.Person;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Repository
+@Profile("memory")
 public class MemoryUserRepository implements UserRepository {
 
     private final Map<String, Person> users = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Person> byId = new ConcurrentSkipListMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
 
     @Override
     public void save(Person person) {
-        users.put(person.getLogin(), person);
+        if (person.getId() == null) {
+            person.setId(ids.incrementAndGet());
+        }
+        Person previous = users.put(person.getLogin(), person);
+        if (previous != null && !previous.getId().equals(person.getId())) {
+            byId.remove(previous.getId());
+        }
+        byId.put(person.getId(), person);
+    }
+
+    @Override
+    public void create(Person person) {
+        person.setId(ids.incrementAndGet());
+        if (users.putIfAbsent(person.getLogin(), person) != null) {
+            throw new DuplicateKeyException("Login %s is taken".formatted(person.getLogin()));
+        }
+        byId.put(person.getId(), person);
     }
 
     @Override
@@ -27,4 +52,16 @@ public class MemoryUserRepository implements UserRepository {
     public List<Person> findAll() {
         return new ArrayList<>(users.values());
     }
+
+    @Override
+    public List<Person> findPage(int afterId, int limit) {
+        return byId.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void forEach(Consumer<Person> action) {
+        byId.values().forEach(action);
+    }
 }
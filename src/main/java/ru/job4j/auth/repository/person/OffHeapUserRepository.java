@@ -0,0 +1,159 @@
+package ru.job4j.auth.repository.person;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import ru.job4j.auth.model.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * For edge caches with millions of users: login, id, roles and password hash are kept outside the
+ * heap in an {@link OffHeapUserTable} and read without a lock, and a snapshot plus an append-only
+ * log in {@code auth.offheap.directory} bring them back on restart. A user takes about 80 bytes
+ * of records and 24 of index, all of it direct memory, so size {@code -XX:MaxDirectMemorySize} to
+ * match. Lists decode a person only when it is read, nothing is copied up front.
+ */
+@Slf4j
+@Repository
+@Profile("offheap")
+public class OffHeapUserRepository implements UserRepository, Closeable {
+
+    private final OffHeapUserTable table;
+    private final UserLogFiles files;
+    private long written;
+    private long snapshotted;
+
+    public OffHeapUserRepository(@Value("${auth.offheap.directory:data/users}") Path directory,
+                                 @Value("${auth.offheap.expected-users:100000}") int expectedUsers)
+            throws IOException {
+        this.table = new OffHeapUserTable(expectedUsers);
+        this.files = new UserLogFiles(directory);
+        long start = System.nanoTime();
+        files.open(table::apply);
+        log.info("Loaded {} users from {} in {} ms", table.size(), directory,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void save(Person person) {
+        synchronized (table) {
+            write(person);
+        }
+    }
+
+    @Override
+    public void create(Person person) {
+        synchronized (table) {
+            if (table.findByLogin(person.getLogin()) != null) {
+                throw new DuplicateKeyException("Login %s is taken".formatted(person.getLogin()));
+            }
+            write(person);
+        }
+    }
+
+    @Override
+    public Person findByUsername(String username) {
+        return table.findByLogin(username);
+    }
+
+    @Override
+    public List<Person> findAll() {
+        return new PersonList(table, 0, table.size());
+    }
+
+    @Override
+    public List<Person> findPage(int afterId, int limit) {
+        int from = table.positionAfter(afterId);
+        return new PersonList(table, from, (int) Math.min(table.size(), (long) from + limit));
+    }
+
+    @Override
+    public void forEach(Consumer<Person> action) {
+        int size = table.size();
+        for (int i = 0; i < size; i++) {
+            action.accept(table.person(i));
+        }
+    }
+
+    /**
+     * Only the switch to a new log holds up writers; the snapshot itself is written while they go
+     * on. Skipped when nothing was saved since the last one.
+     */
+    @Scheduled(fixedDelayString = "${auth.offheap.snapshot-interval:5m}",
+            initialDelayString = "${auth.offheap.snapshot-interval:5m}")
+    public synchronized void snapshot() {
+        try {
+            long firstLog;
+            int count;
+            long writes;
+            synchronized (table) {
+                if (written == snapshotted) {
+                    return;
+                }
+                firstLog = files.rotate();
+                count = table.size();
+                writes = written;
+            }
+            files.writeSnapshot(firstLog, count, table::record);
+            snapshotted = writes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Takes a last snapshot, so the next start does not have to replay the log.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        snapshot();
+        files.close();
+    }
+
+    /**
+     * Logged before it is applied, so a write that cannot be logged is not seen either.
+     */
+    private void write(Person person) {
+        byte[] record = table.encode(person);
+        files.append(record);
+        table.apply(record);
+        person.setId(OffHeapUserTable.id(record));
+        written++;
+    }
+
+    private static final class PersonList extends AbstractList<Person> implements RandomAccess {
+
+        private final OffHeapUserTable table;
+        private final int from;
+        private final int to;
+
+        private PersonList(OffHeapUserTable table, int from, int to) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Person get(int index) {
+            Objects.checkIndex(index, size());
+            return table.person(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package ru.job4j.auth.repository.person;
+
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Login to id, roles and password hash, kept outside the Java heap. Records are appended to
+ * direct buffers and never move. An open-addressing table of longs holds, for each login, part of
+ * its hash and the offset of its latest record, so a lookup reads one slot and one record. An
+ * array of positions in ascending id order points at the same records, for paging; an update is
+ * one more record and two stores.
+ * <p>
+ * One writer at a time, guarded by the caller. Readers take no lock: a record is complete before
+ * the release stores that publish it, and grown tables and chunk lists are swapped in whole.
+ */
+final class OffHeapUserTable {
+
+    /**
+     * Id, role mask, login length, password length, then the login and password in UTF-8.
+     */
+    static final int HEADER = Integer.BYTES + Byte.BYTES + Short.BYTES + Short.BYTES;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+    private static final VarHandle BYTES_AS_LONG = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final int OFFSET_BITS = 37;
+    private static final int TAG_BITS = Long.SIZE - OFFSET_BITS;
+    private static final int DATA_CHUNK_BITS = 26;
+    private static final int DATA_CHUNK = 1 << DATA_CHUNK_BITS;
+    private static final int POSITION_CHUNK_BITS = 20;
+    private static final int POSITION_CHUNK = 1 << POSITION_CHUNK_BITS;
+    private static final int MAX_SLOTS = 1 << 27;
+    private static final Role[] ROLES = Role.values();
+
+    private volatile ByteBuffer[] data = new ByteBuffer[0];
+    private volatile ByteBuffer[] positions = new ByteBuffer[0];
+    private volatile ByteBuffer slots;
+    private volatile int size;
+    private long dataEnd;
+    private int lastId;
+
+    OffHeapUserTable(int expectedUsers) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedUsers * 8 / 5)) << 1;
+        slots = ByteBuffer.allocateDirect(Math.min(capacity, MAX_SLOTS) * Long.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The record that stores the person under its login. A new login takes the next id whatever
+     * the person carries, so no caller can push the ids out of order or to their end; a known
+     * login keeps its id.
+     */
+    byte[] encode(Person person) {
+        byte[] login = person.getLogin().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer table = slots;
+        int slot = find(table, login, tag(login, 0, login.length));
+        int id;
+        if (slot >= 0) {
+            id = id(offset(table, slot));
+        } else {
+            if (lastId == Integer.MAX_VALUE) {
+                throw new IllegalStateException("User ids are exhausted");
+            }
+            id = lastId + 1;
+        }
+        return encode(id, mask(person.getRoles()), login, person.getPassword());
+    }
+
+    /**
+     * Applies a record made by {@link #encode(Person)}, or read back from a snapshot or log.
+     */
+    void apply(byte[] record) {
+        int loginLength = ByteBuffer.wrap(record).getShort(Integer.BYTES + Byte.BYTES);
+        int tag = tag(record, HEADER, loginLength);
+        byte[] login = Arrays.copyOfRange(record, HEADER, HEADER + loginLength);
+        int id = id(record);
+        int slot = find(slots, login, tag);
+        if (slot < 0 && id <= lastId) {
+            throw new IllegalStateException("Record of id %d after id %d".formatted(id, lastId));
+        }
+        long offset = append(record);
+        if (slot >= 0) {
+            int position = positionAfter(id - 1);
+            LONGS.setRelease(positionChunk(position), positionIndex(position), offset);
+            LONGS.setRelease(slots, slot * Long.BYTES, entry(tag, offset));
+            return;
+        }
+        int next = size;
+        if ((long) (next + 1) * 8 > (long) capacity() * 5) {
+            grow();
+        }
+        ensurePositions(next);
+        LONGS.setRelease(positionChunk(next), positionIndex(next), offset);
+        insert(slots, entry(tag, offset));
+        lastId = id;
+        size = next + 1;
+    }
+
+    Person findByLogin(String login) {
+        byte[] key = login.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer table = slots;
+        int slot = find(table, key, tag(key, 0, key.length));
+        return slot < 0 ? null : decode(offset(table, slot), login);
+    }
+
+    Person person(int position) {
+        return decode(offset(position), null);
+    }
+
+    byte[] record(int position) {
+        long offset = offset(position);
+        ByteBuffer chunk = data[(int) (offset >>> DATA_CHUNK_BITS)];
+        int index = (int) (offset & (DATA_CHUNK - 1));
+        byte[] record = new byte[HEADER + chunk.getShort(index + 5) + chunk.getShort(index + 7)];
+        chunk.get(index, record);
+        return record;
+    }
+
+    /**
+     * The first position with an id above the given one, or {@link #size()} if there is none.
+     */
+    int positionAfter(int id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (id(offset(mid)) <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the slot of the login in the given table, or -1
+     */
+    private int find(ByteBuffer table, byte[] login, int tag) {
+        int mask = table.capacity() / Long.BYTES - 1;
+        for (int i = index(table, tag);; i = (i + 1) & mask) {
+            long entry = (long) LONGS.getAcquire(table, i * Long.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            if ((int) (entry >>> OFFSET_BITS) == tag && matches((entry & (1L << OFFSET_BITS) - 1) - 1, login)) {
+                return i;
+            }
+        }
+    }
+
+    private static void insert(ByteBuffer table, long entry) {
+        int mask = table.capacity() / Long.BYTES - 1;
+        int i = index(table, (int) (entry >>> OFFSET_BITS));
+        while ((long) LONGS.getAcquire(table, i * Long.BYTES) != 0) {
+            i = (i + 1) & mask;
+        }
+        LONGS.setRelease(table, i * Long.BYTES, entry);
+    }
+
+    /**
+     * The top bits of the tag, which holds enough of them for the largest table, so growing
+     * rehashes from the slots alone, without touching the records.
+     */
+    private static int index(ByteBuffer table, int tag) {
+        return tag >>> TAG_BITS - Integer.numberOfTrailingZeros(table.capacity() / Long.BYTES);
+    }
+
+    private static long entry(int tag, long offset) {
+        return (long) tag << OFFSET_BITS | offset + 1;
+    }
+
+    private void grow() {
+        ByteBuffer old = slots;
+        if (capacity() >= MAX_SLOTS) {
+            throw new IllegalStateException("User table is full at " + size + " users");
+        }
+        ByteBuffer table = ByteBuffer.allocateDirect(old.capacity() * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < old.capacity(); i += Long.BYTES) {
+            long entry = (long) LONGS.get(old, i);
+            if (entry != 0) {
+                insert(table, entry);
+            }
+        }
+        slots = table;
+    }
+
+    private int capacity() {
+        return slots.capacity() / Long.BYTES;
+    }
+
+    private void ensurePositions(int position) {
+        int chunk = position >>> POSITION_CHUNK_BITS;
+        if (chunk == positions.length) {
+            ByteBuffer[] grown = Arrays.copyOf(positions, chunk + 1);
+            grown[chunk] = ByteBuffer.allocateDirect(POSITION_CHUNK * Long.BYTES).order(ByteOrder.nativeOrder());
+            positions = grown;
+        }
+    }
+
+    private ByteBuffer positionChunk(int position) {
+        return positions[position >>> POSITION_CHUNK_BITS];
+    }
+
+    private static int positionIndex(int position) {
+        return (position & (POSITION_CHUNK - 1)) * Long.BYTES;
+    }
+
+    private long offset(int position) {
+        return (long) LONGS.getAcquire(positionChunk(position), positionIndex(position));
+    }
+
+    private static long offset(ByteBuffer table, int slot) {
+        return ((long) LONGS.getAcquire(table, slot * Long.BYTES) & (1L << OFFSET_BITS) - 1) - 1;
+    }
+
+    /**
+     * A record that does not fit in the rest of the current chunk starts the next one.
+     */
+    private long append(byte[] record) {
+        if (dataEnd + DATA_CHUNK >= 1L << OFFSET_BITS) {
+            throw new IllegalStateException("User records are full at " + size + " users");
+        }
+        int index = (int) (dataEnd & (DATA_CHUNK - 1));
+        if (dataEnd >>> DATA_CHUNK_BITS == data.length || DATA_CHUNK - index < record.length) {
+            ByteBuffer[] grown = Arrays.copyOf(data, data.length + 1);
+            grown[data.length] = ByteBuffer.allocateDirect(DATA_CHUNK);
+            data = grown;
+            dataEnd = (long) (data.length - 1) << DATA_CHUNK_BITS;
+            index = 0;
+        }
+        data[data.length - 1].put(index, record);
+        long offset = dataEnd;
+        dataEnd += record.length;
+        return offset;
+    }
+
+    /**
+     * Eight bytes at a time: a record never spans two chunks, and every access to a direct buffer
+     * pays for its checks.
+     */
+    private boolean matches(long offset, byte[] login) {
+        ByteBuffer chunk = data[(int) (offset >>> DATA_CHUNK_BITS)];
+        int start = (int) (offset & (DATA_CHUNK - 1)) + HEADER;
+        if (chunk.getShort(start - 4) != login.length) {
+            return false;
+        }
+        int i = 0;
+        for (; i + Long.BYTES <= login.length; i += Long.BYTES) {
+            if (chunk.getLong(start + i) != (long) BYTES_AS_LONG.get(login, i)) {
+                return false;
+            }
+        }
+        for (; i < login.length; i++) {
+            if (chunk.get(start + i) != login[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int id(long offset) {
+        return data[(int) (offset >>> DATA_CHUNK_BITS)].getInt((int) (offset & (DATA_CHUNK - 1)));
+    }
+
+    /**
+     * @param login the login when the caller has it already, or null to read it from the record
+     */
+    private Person decode(long offset, String login) {
+        ByteBuffer chunk = data[(int) (offset >>> DATA_CHUNK_BITS)];
+        int index = (int) (offset & (DATA_CHUNK - 1));
+        int loginLength = chunk.getShort(index + 5);
+        int from = login == null ? 0 : loginLength;
+        byte[] bytes = new byte[loginLength + chunk.getShort(index + 7) - from];
+        chunk.get(index + HEADER + from, bytes);
+        var person = new Person(chunk.getInt(index),
+                login == null ? new String(bytes, 0, loginLength, StandardCharsets.UTF_8) : login,
+                new String(bytes, loginLength - from, bytes.length - loginLength + from, StandardCharsets.UTF_8));
+        person.setRoles(roles(chunk.get(index + 4)));
+        return person;
+    }
+
+    static int id(byte[] record) {
+        return ByteBuffer.wrap(record).getInt();
+    }
+
+    private static byte[] encode(int id, int roles, byte[] login, String password) {
+        byte[] hash = password.getBytes(StandardCharsets.UTF_8);
+        if (login.length > Short.MAX_VALUE || hash.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Login or password hash too long");
+        }
+        return ByteBuffer.allocate(HEADER + login.length + hash.length)
+                .putInt(id)
+                .put((byte) roles)
+                .putShort((short) login.length)
+                .putShort((short) hash.length)
+                .put(login)
+                .put(hash)
+                .array();
+    }
+
+    private static int mask(Set<Role> roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= 1 << role.ordinal();
+        }
+        return mask;
+    }
+
+    private static Set<Role> roles(int mask) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : ROLES) {
+            if ((mask & (1 << role.ordinal())) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * The top bits of a hash over the UTF-8 bytes, so neither a lookup nor a warm restart has to
+     * build a String to hash. A slot holds it above the record offset plus one, so an occupied
+     * slot is never zero.
+     */
+    private static int tag(byte[] bytes, int from, int length) {
+        int h = 1;
+        for (int i = from; i < from + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h >>> Integer.SIZE - TAG_BITS;
+    }
+}
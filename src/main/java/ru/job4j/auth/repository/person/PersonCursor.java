@@ -0,0 +1,36 @@
+package ru.job4j.auth.repository.person;
+
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.model.Person;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks the whole person table over a server-side JDBC cursor. Every row is detached
+ * after it is handed to the consumer, so the persistence context never grows.
+ */
+@Repository
+@AllArgsConstructor
+public class PersonCursor {
+
+    private final PersonRepository persons;
+    private final EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long forEach(Consumer<Person> action) {
+        long count = 0;
+        try (Stream<Person> rows = persons.streamAll()) {
+            for (var it = rows.iterator(); it.hasNext();) {
+                Person person = it.next();
+                action.accept(person);
+                entityManager.detach(person);
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.job4j.auth.repository.person;
+
+import ru.job4j.auth.model.Person;
+
+import java.util.Optional;
+
+public interface PersonNaturalIdRepository {
+
+    /**
+     * Resolves the login through the natural-id cache and the person and its roles through the
+     * entity and collection caches, so a repeated lookup issues no SQL at all.
+     */
+    Optional<Person> findByLogin(String login);
+}
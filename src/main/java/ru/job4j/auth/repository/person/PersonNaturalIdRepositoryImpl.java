@@ -0,0 +1,44 @@
+package ru.job4j.auth.repository.person;
+
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheEvictor;
+import ru.job4j.auth.model.Person;
+
+import java.util.Optional;
+
+/**
+ * Resolves the login through the natural-id cache. A patch does not touch that cache, so an entry
+ * can still point at a person who has since been renamed; such an entry is evicted and the login
+ * is looked up in the table.
+ */
+@AllArgsConstructor
+public class PersonNaturalIdRepositoryImpl implements PersonNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Person> findByLogin(String login) {
+        var person = entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Person.class)
+                .load(login);
+        if (person != null && !login.equals(person.getLogin())) {
+            SecondLevelCacheEvictor.evictLogin(entityManager.unwrap(SessionImplementor.class), login);
+            person = entityManager.createQuery("select p from Person p where p.login = :login", Person.class)
+                    .setParameter("login", login)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (person == null) {
+            return Optional.empty();
+        }
+        Hibernate.initialize(person.getRoles());
+        return Optional.of(person);
+    }
+}
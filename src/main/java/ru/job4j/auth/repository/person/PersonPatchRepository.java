@@ -0,0 +1,12 @@
+package ru.job4j.auth.repository.person;
+
+public interface PersonPatchRepository {
+
+    /**
+     * Updates only the non-null columns of the person with the given id and version, and bumps the
+     * version, in a single UPDATE statement guarded by that version.
+     *
+     * @return the number of updated rows: 0 when the person is gone or its version has moved on
+     */
+    int patch(int id, long version, String login, String password);
+}
@@ -0,0 +1,68 @@
+package ru.job4j.auth.repository.person;
+
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.job4j.auth.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One UPDATE guarded by the version, as a criteria update would issue it. Hibernate clears the
+ * whole person and login regions after any criteria or HQL bulk update, so the statement is native
+ * and declares a query space no entity is mapped to; only the patched person is evicted, once the
+ * transaction commits. A login entry left pointing at the patched person is caught on lookup by
+ * {@link PersonNaturalIdRepositoryImpl}.
+ */
+@AllArgsConstructor
+public class PersonPatchRepositoryImpl implements PersonPatchRepository {
+
+    private static final String QUERY_SPACE = "person_patch";
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(int id, long version, String login, String password) {
+        List<String> columns = new ArrayList<>();
+        if (login != null) {
+            columns.add("login = :login");
+        }
+        if (password != null) {
+            columns.add("password = :password");
+        }
+        columns.add("version = version + 1");
+        var update = entityManager.createNativeQuery(
+                "update person set " + String.join(", ", columns) + " where id = :id and version = :version")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(QUERY_SPACE)
+                .setParameter("id", id)
+                .setParameter("version", version);
+        if (login != null) {
+            update.setParameter("login", login);
+        }
+        if (password != null) {
+            update.setParameter("password", password);
+        }
+        int updated = update.executeUpdate();
+        if (updated > 0) {
+            evictAfterCommit(id);
+        }
+        return updated;
+    }
+
+    private void evictAfterCommit(int id) {
+        var cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evictEntityData(Person.class, id);
+            }
+        });
+    }
+}
@@ -1,7 +1,44 @@
 package ru.job4j.auth.repository.person;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.job4j.auth.model.Person;
 
-public interface PersonRepository extends CrudRepository<Person, Integer> {
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Declared queries are read-only transactions like the inherited finders, so they can be served by
+ * a replica when one is configured; writing methods override it with their own.
+ */
+@Transactional(readOnly = true)
+public interface PersonRepository extends CrudRepository<Person, Integer>,
+        PersonPatchRepository, PersonNaturalIdRepository {
+
+    /**
+     * A single DELETE; the roles go with it through the cascading foreign key. Native, because a
+     * JPQL bulk delete would first clear the role collection table with a statement of its own.
+     * The query space limits the second-level cache eviction to the person regions.
+     */
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "person"))
+    @Query(value = "delete from person where id = :id", nativeQuery = true)
+    int removeById(int id);
+
+    List<Person> findByIdGreaterThanOrderByIdAsc(int id, Limit limit);
+
+    @Query("select p from Person p order by p.id")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Person> streamAll();
 }
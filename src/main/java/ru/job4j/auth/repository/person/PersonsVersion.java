@@ -0,0 +1,28 @@
+package ru.job4j.auth.repository.person;
+
+import ru.job4j.auth.model.Person;
+
+import java.util.List;
+
+/**
+ * Version of a list of persons, taken from the ids and versions of the rows themselves, so it
+ * changes whenever a person in the list is added, removed or updated, whoever wrote it.
+ */
+public record PersonsVersion(int count, long hash) {
+
+    public static PersonsVersion of(List<Person> persons) {
+        long hash = 0;
+        for (Person person : persons) {
+            hash = mix(mix(hash, person.getId()), person.getVersion());
+        }
+        return new PersonsVersion(persons.size(), hash);
+    }
+
+    public String etag() {
+        return "\"%d.%x\"".formatted(count, hash);
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 31);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.job4j.auth.repository.person;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A snapshot of every user plus numbered append-only logs of the records written since. Each
+ * record is framed by its length and CRC, so a write torn by a crash ends the replay of its log
+ * instead of failing the start. A snapshot first moves writes to a new log and then names the
+ * first log it does not replace; the logs before it are deleted once the snapshot is in place.
+ * Replaying a record twice is harmless, the later one wins, so a record both in the snapshot and
+ * in a newer log is fine.
+ */
+@Slf4j
+final class UserLogFiles implements Closeable {
+
+    private static final int MAGIC = 0x41555331;
+    private static final int MAX_RECORD = OffHeapUserTable.HEADER + 2 * Short.MAX_VALUE;
+    private static final String SNAPSHOT = "users.snapshot";
+    private static final Pattern LOG = Pattern.compile("users\\.(\\d+)\\.log");
+
+    private final Path directory;
+    private FileChannel active;
+    private long logNumber;
+
+    UserLogFiles(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Replays the snapshot and the logs after it, then opens a new log, so writes never follow a
+     * torn record. Logs with no record in them are deleted on the way.
+     */
+    void open(Consumer<byte[]> records) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        long firstLog = 0;
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = input(snapshot)) {
+                firstLog = in.readLong();
+                if (replay(in, records)) {
+                    throw new IllegalStateException("Corrupt user snapshot " + snapshot);
+                }
+            }
+        }
+        long last = firstLog - 1;
+        for (long number : logNumbers()) {
+            Path path = logPath(number);
+            if (Files.size(path) <= Integer.BYTES) {
+                Files.delete(path);
+            } else if (number >= firstLog) {
+                try (DataInputStream in = input(path)) {
+                    if (replay(in, records)) {
+                        log.warn("User log {} ends with a torn record", path);
+                    }
+                }
+            }
+            last = Math.max(last, number);
+        }
+        startLog(last + 1);
+    }
+
+    void append(byte[] record) {
+        try {
+            ByteBuffer frame = ByteBuffer.allocate(2 * Integer.BYTES + record.length)
+                    .putInt(record.length)
+                    .putInt(crc(record))
+                    .put(record)
+                    .flip();
+            while (frame.hasRemaining()) {
+                active.write(frame);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Moves writes to a new log; called under the writer's lock.
+     *
+     * @return the number of the new log, for {@link #writeSnapshot}
+     */
+    long rotate() throws IOException {
+        active.close();
+        startLog(logNumber + 1);
+        return logNumber;
+    }
+
+    /**
+     * Writes the given records to a temporary file, moves it in place and deletes the logs it
+     * replaces. Runs outside the writer's lock.
+     */
+    void writeSnapshot(long firstLog, int count, IntFunction<byte[]> records) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(firstLog);
+            for (int i = 0; i < count; i++) {
+                byte[] record = records.apply(i);
+                out.writeInt(record.length);
+                out.writeInt(crc(record));
+                out.write(record);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        for (long number : logNumbers()) {
+            if (number < firstLog) {
+                Files.delete(logPath(number));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        active.close();
+    }
+
+    private void startLog(long number) throws IOException {
+        active = FileChannel.open(logPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        active.write(ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+        logNumber = number;
+    }
+
+    /**
+     * @return whether the stream ended inside a record or at one with a wrong checksum
+     */
+    private static boolean replay(DataInputStream in, Consumer<byte[]> records) throws IOException {
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            if (length < OffHeapUserTable.HEADER || length > MAX_RECORD) {
+                return true;
+            }
+            try {
+                int crc = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                if (crc(record) != crc) {
+                    return true;
+                }
+                records.accept(record);
+            } catch (EOFException e) {
+                return true;
+            }
+        }
+    }
+
+    private DataInputStream input(Path path) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IllegalStateException("Not a user log or snapshot: " + path);
+        }
+        return in;
+    }
+
+    private List<Long> logNumbers() throws IOException {
+        var numbers = new ArrayList<Long>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = LOG.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path logPath(long number) {
+        return directory.resolve("users." + number + ".log");
+    }
+
+    private static int crc(byte[] record) {
+        var crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
@@ -3,12 +3,24 @@ package ru.job4j.auth.repository.person;
 import ru.job4j.auth.model.Person;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserRepository {
 
     void save(Person person);
 
+    /**
+     * Adds a new user under an id the repository assigns, whatever id the person carries. A login
+     * that is already taken is a {@link org.springframework.dao.DataIntegrityViolationException},
+     * as the unique constraint reports it.
+     */
+    void create(Person person);
+
     Person findByUsername(String username);
 
     List<Person> findAll();
+
+    List<Person> findPage(int afterId, int limit);
+
+    void forEach(Consumer<Person> action);
 }
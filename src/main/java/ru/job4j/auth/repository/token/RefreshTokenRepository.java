@@ -0,0 +1,24 @@
+package ru.job4j.auth.repository.token;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import ru.job4j.auth.model.RefreshToken;
+
+import java.time.Instant;
+
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, String> {
+
+    @Modifying
+    @Query("update RefreshToken t set t.used = true where t.id = :id and t.used = false")
+    int markUsed(@Param("id") String id);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.login = :login")
+    int deleteByLogin(@Param("login") String login);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,19 @@
+package ru.job4j.auth.repository.token;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import ru.job4j.auth.model.TokenWatermark;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TokenWatermarkRepository extends CrudRepository<TokenWatermark, String> {
+
+    List<TokenWatermark> findByUpdatedAtAfterOrderByUpdatedAtAsc(Instant updatedAt);
+
+    @Modifying
+    @Query("delete from TokenWatermark w where w.notBefore < :before")
+    int deleteOlderThan(@Param("before") Instant before);
+}
@@ -1,28 +1,54 @@
 package ru.job4j.auth.repository.user;
 
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import ru.job4j.auth.datasource.ReadYourWrites;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.metrics.AuthMetrics;
 import ru.job4j.auth.model.Person;
 import ru.job4j.auth.repository.person.UserRepository;
 
-import static java.util.Collections.emptyList;
-
 @Service
 @AllArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository users;
+    private final AuthMetrics metrics;
+
+    /**
+     * Present only with read replicas.
+     */
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Person user = users.findByUsername(username);
+        long start = System.nanoTime();
+        Person user = find(username);
+        metrics.userLookup(start);
         if (user == null) {
             throw new UsernameNotFoundException(username);
         }
-        return new User(user.getLogin(), user.getPassword(), emptyList());
+        return new User(user.getLogin(), user.getPassword(), RoleAuthorities.of(user.getRoles()));
+    }
+
+    /**
+     * Reads a user changed within the read-your-writes window from the primary, so a login with a
+     * new password is not checked against a replica that has not replayed it yet.
+     */
+    private Person find(String username) {
+        var pinning = readYourWrites.getIfAvailable();
+        boolean pinned = pinning != null && pinning.pinCurrentThread(username);
+        try {
+            return users.findByUsername(username);
+        } finally {
+            if (pinned) {
+                pinning.unpinCurrentThread();
+            }
+        }
     }
 }
@@ -0,0 +1,49 @@
+package ru.job4j.auth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+import ru.job4j.auth.repository.person.UserRepository;
+
+import java.util.List;
+
+/**
+ * Grants {@link Role#ADMIN} to the accounts listed in {@code auth.admins} once the application is
+ * up. Only accounts that already exist are promoted, so nobody becomes an admin by signing up
+ * under a listed login; the role is kept when the login is later removed from the list.
+ */
+@Component
+@Slf4j
+public class AdminProvisioner {
+
+    private final UserRepository users;
+    private final ApplicationEventPublisher events;
+    private final List<String> admins;
+
+    public AdminProvisioner(UserRepository users, ApplicationEventPublisher events,
+                            @Value("${auth.admins:}") List<String> admins) {
+        this.users = users;
+        this.events = events;
+        this.admins = admins;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void grant() {
+        for (String login : admins) {
+            Person person = users.findByUsername(login);
+            if (person == null) {
+                log.warn("No account {} to grant {}", login, Role.ADMIN);
+            } else if (person.getRoles().add(Role.ADMIN)) {
+                users.save(person);
+                events.publishEvent(UserChangedEvent.of(person.getId(), login));
+                log.info("Granted {} to {}", Role.ADMIN, login);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package ru.job4j.auth.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.job4j.auth.Operation;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
+import ru.job4j.auth.dto.BulkImportResult;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a stream of persons in JDBC batches. Rows are validated with the {@link Operation.OnCreate}
+ * group and hashed on the BCrypt pool; a batch that fails to insert is retried row by row so every
+ * rejected row is reported with its position in the input. A password that already is a BCrypt
+ * hash is kept only when the caller asks for it, for a migration between instances.
+ */
+@Service
+@RequiredArgsConstructor
+public class PersonBulkService {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactions;
+    private final BoundedPasswordEncoder encoder;
+    private final Validator validator;
+    private final ApplicationEventPublisher events;
+
+    @Value("${auth.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${auth.bulk.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public BulkImportResult importAll(Iterator<Person> rows, boolean keepHashes) {
+        var result = new BulkImportResult();
+        var batch = new ArrayList<Row>(batchSize);
+        long index = 1;
+        Person person = next(rows, index, result);
+        while (person != null) {
+            if (isValid(index, person, result)) {
+                person.setId(null);
+                batch.add(new Row(index, person));
+            }
+            if (batch.size() == batchSize) {
+                write(batch, keepHashes, result);
+                batch.clear();
+            }
+            index++;
+            person = next(rows, index, result);
+        }
+        write(batch, keepHashes, result);
+        if (result.getImported() > 0) {
+            events.publishEvent(UserChangedEvent.anyUser());
+        }
+        return result;
+    }
+
+    private Person next(Iterator<Person> rows, long index, BulkImportResult result) {
+        try {
+            return rows.hasNext() ? rows.next() : null;
+        } catch (RuntimeException e) {
+            reject(result, index, null, "Malformed input, import stopped: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isValid(long index, Person person, BulkImportResult result) {
+        Set<ConstraintViolation<Person>> violations = validator.validate(person, Operation.OnCreate.class);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        reject(result, index, person.getLogin(), violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; ")));
+        return false;
+    }
+
+    private void write(List<Row> batch, boolean keepHashes, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Row> hashed = hash(batch, keepHashes, result);
+        try {
+            transactions.executeWithoutResult(status -> persist(hashed));
+            result.setImported(result.getImported() + hashed.size());
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            hashed.forEach(row -> writeOne(row, result));
+        }
+    }
+
+    /**
+     * Imported rows are not pushed into the second-level cache, they would only evict the hot persons.
+     */
+    private void persist(List<Row> rows) {
+        var session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+        session.setCacheMode(CacheMode.IGNORE);
+        for (Row row : rows) {
+            entityManager.persist(row.person());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void writeOne(Row row, BulkImportResult result) {
+        row.person().setId(null);
+        try {
+            transactions.executeWithoutResult(status -> {
+                entityManager.persist(row.person());
+                entityManager.flush();
+            });
+            result.setImported(result.getImported() + 1);
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            reject(result, row.index(), row.person().getLogin(),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    private List<Row> hash(List<Row> batch, boolean keepHashes, BulkImportResult result) {
+        var hashed = new ArrayList<Row>(batch.size());
+        int window = encoder.poolSize();
+        for (int from = 0; from < batch.size(); from += window) {
+            var slice = batch.subList(from, Math.min(from + window, batch.size()));
+            var hashes = slice.stream().map(row -> encode(row.person().getPassword(), keepHashes)).toList();
+            for (int i = 0; i < slice.size(); i++) {
+                Row row = slice.get(i);
+                try {
+                    row.person().setPassword(hashes.get(i).join());
+                    hashed.add(row);
+                } catch (CompletionException e) {
+                    reject(result, row.index(), row.person().getLogin(), e.getCause().getMessage());
+                }
+            }
+        }
+        return hashed;
+    }
+
+    private CompletableFuture<String> encode(String password, boolean keepHashes) {
+        if (keepHashes && BCRYPT.matcher(password).matches()) {
+            return CompletableFuture.completedFuture(password);
+        }
+        try {
+            return encoder.encodeAsync(password);
+        } catch (PasswordEncoderSaturatedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void reject(BulkImportResult result, long index, String login, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkImportResult.RowError(index, login, message));
+        }
+    }
+
+    private record Row(long index, Person person) {
+    }
+}
@@ -0,0 +1,95 @@
+package ru.job4j.auth.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.model.RefreshToken;
+import ru.job4j.auth.repository.token.RefreshTokenRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque, single-use refresh tokens. Presenting a token that was already rotated means it leaked,
+ * so every token of that login is revoked, including the access tokens.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository tokens;
+    private final ApplicationEventPublisher events;
+
+    @Value("${auth.jwt.refresh-token-ttl:14d}")
+    private Duration ttl;
+
+    @Transactional
+    public String issue(String login) {
+        String token = generate();
+        tokens.save(new RefreshToken(digest(token), login, Instant.now().plus(ttl), false));
+        return token;
+    }
+
+    @Transactional
+    public Optional<Rotation> rotate(String token) {
+        String id = digest(token);
+        Optional<RefreshToken> found = tokens.findById(id)
+                .filter(t -> t.getExpiresAt().isAfter(Instant.now()));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        String login = found.get().getLogin();
+        if (tokens.markUsed(id) == 0) {
+            events.publishEvent(TokensRevokedEvent.now(login));
+            return Optional.empty();
+        }
+        return Optional.of(new Rotation(login, issue(login)));
+    }
+
+    @EventListener
+    @Transactional
+    public void onRevoked(TokensRevokedEvent event) {
+        tokens.deleteByLogin(event.login());
+    }
+
+    @Scheduled(fixedDelayString = "${auth.jwt.cleanup-interval:1h}")
+    @Transactional
+    public void cleanup() {
+        tokens.deleteExpired(Instant.now());
+    }
+
+    public static String generate() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    /**
+     * The id under which a token is stored.
+     */
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return BASE64_URL.encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(String login, String refreshToken) {
+    }
+}
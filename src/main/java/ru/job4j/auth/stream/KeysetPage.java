@@ -0,0 +1,26 @@
+package ru.job4j.auth.stream;
+
+import org.springframework.http.ResponseEntity;
+import ru.job4j.auth.model.Person;
+
+import java.util.List;
+
+public final class KeysetPage {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private KeysetPage() {
+    }
+
+    public static int limit(int requested, int maxLimit) {
+        return Math.max(1, Math.min(requested, maxLimit));
+    }
+
+    public static ResponseEntity<List<Person>> of(List<Person> rows, int limit) {
+        var response = ResponseEntity.ok();
+        if (rows.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(rows.get(rows.size() - 1).getId()));
+        }
+        return response.body(rows);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.job4j.auth.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one JSON document per line straight into the target stream without
+ * buffering the rows; the target is flushed on close but never closed.
+ */
+public class NdjsonWriter implements Closeable {
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private long count;
+
+    public NdjsonWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = mapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+    }
+
+    public void write(Object row) {
+        try {
+            writer.writeValue(generator, row);
+            generator.writeRaw('\n');
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
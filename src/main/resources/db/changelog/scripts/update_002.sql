@@ -0,0 +1 @@
+alter sequence person_id_seq increment by 50;
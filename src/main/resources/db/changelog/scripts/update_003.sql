@@ -0,0 +1,16 @@
+create table if not exists refresh_token (
+    id varchar(64) primary key not null,
+    login varchar(2000) not null,
+    expires_at timestamp not null,
+    used boolean not null default false
+);
+
+create index if not exists refresh_token_login_idx on refresh_token (login);
+
+create table if not exists token_watermark (
+    login varchar(2000) primary key not null,
+    not_before timestamp not null,
+    updated_at timestamp not null
+);
+
+create index if not exists token_watermark_updated_at_idx on token_watermark (updated_at);
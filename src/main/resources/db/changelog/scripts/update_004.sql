@@ -0,0 +1,9 @@
+create table if not exists person_roles (
+    person_id int not null references person (id) on delete cascade,
+    role varchar(32) not null,
+    primary key (person_id, role)
+);
+
+insert into person_roles (person_id, role)
+select id, 'USER' from person
+on conflict do nothing;
@@ -0,0 +1,81 @@
+package ru.job4j.auth.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.job4j.auth.Job4jAuthApplication;
+import ru.job4j.auth.reactive.ReactiveAuthApplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the servlet stack on virtual threads with the WebFlux + R2DBC stack under the same
+ * high concurrency, each against its own in-memory H2 database with the same number of
+ * connections. Needs the reactive profile, run with
+ * {@code ./mvnw -P reactive test -Dgroups=load -DexcludedGroups= -Dtest=ReactiveModeLoadTest}.
+ */
+@Tag("load")
+class ReactiveModeLoadTest {
+
+    private static final int CLIENTS = 2_000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final int DB_CONNECTIONS = 10;
+    private static final String PATH = "/person/?limit=10";
+
+    @Test
+    void compareServletAndReactive() throws Exception {
+        LoadDriver.Result servlet = run(startServlet());
+        LoadDriver.Result reactive = run(startReactive());
+        System.out.printf("servlet:  %s%nreactive: %s%n", servlet, reactive);
+        assertThat(servlet.failed()).isZero();
+        assertThat(reactive.failed()).isZero();
+    }
+
+    private LoadDriver.Result run(ConfigurableApplicationContext started) throws Exception {
+        try (ConfigurableApplicationContext ctx = started) {
+            var driver = new LoadDriver(ctx.getEnvironment().getRequiredProperty("local.server.port", Integer.class));
+            String token = driver.login();
+            driver.load(PATH, token, CLIENTS / 10, REQUESTS_PER_CLIENT);
+            return driver.load(PATH, token, CLIENTS, REQUESTS_PER_CLIENT);
+        }
+    }
+
+    private ConfigurableApplicationContext startServlet() {
+        return new SpringApplicationBuilder(Job4jAuthApplication.class).run(LoadDriver.arguments(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:load-servlet;DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.hikari.maximum-pool-size=" + DB_CONNECTIONS,
+                "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.security=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.ru.job4j=WARN",
+                "auth.db.max-concurrency=" + DB_CONNECTIONS,
+                "auth.invalidation.enabled=false",
+                "auth.db.acquire-timeout=30s",
+                "spring.threads.virtual.enabled=true"
+        ));
+    }
+
+    private ConfigurableApplicationContext startReactive() {
+        return new SpringApplicationBuilder(ReactiveAuthApplication.class)
+                .profiles(ReactiveAuthApplication.PROFILE)
+                .run(LoadDriver.arguments(
+                        "server.port=0",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///load-reactive;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "spring.r2dbc.username=sa",
+                        "spring.r2dbc.password=",
+                        "spring.r2dbc.pool.max-size=" + DB_CONNECTIONS,
+                        "spring.sql.init.mode=always",
+                        "spring.sql.init.schema-locations=classpath:reactive-schema.sql",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.security=WARN",
+                        "logging.level.org.springframework.web=WARN",
+                        "logging.level.ru.job4j=WARN"
+                ));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.job4j.auth.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.model.Person;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+@Import(ReactiveWebSecurity.class)
+class JwtAuthenticationWebFilterTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockitoBean
+    private ReactivePersonRepository persons;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private ReactiveRefreshTokens refreshTokens;
+
+    @Test
+    void whenLoginWithExtraFieldsThenOnlyCredentialsAreUsed() {
+        when(persons.findByLogin("admin")).thenReturn(Mono.just(new Person(1, "admin", "hash")));
+        when(encoder.matchesAsync("password", "hash")).thenReturn(CompletableFuture.completedFuture(true));
+        when(refreshTokens.issue("admin")).thenReturn(Mono.just("refresh"));
+
+        login("{\"id\":1,\"login\":\"admin\",\"extra\":{\"a\":[1,2]},\"password\":\"password\"}")
+                .expectStatus().isOk()
+                .expectHeader().value("Authorization", startsWith("Bearer "))
+                .expectBody()
+                .jsonPath("$.refreshToken").isEqualTo("refresh");
+    }
+
+    @Test
+    void whenLoginIsUnknownThenUnauthorizedAfterTheSameBcryptWork() {
+        when(persons.findByLogin("ghost")).thenReturn(Mono.empty());
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("dummy"));
+        when(encoder.matchesAsync("password", "dummy")).thenReturn(CompletableFuture.completedFuture(true));
+
+        login("{\"login\":\"ghost\",\"password\":\"password\"}")
+                .expectStatus().isUnauthorized();
+        verify(encoder).matchesAsync("password", "dummy");
+        verify(refreshTokens, never()).issue(anyString());
+    }
+
+    @Test
+    void whenLoginBodyIsMalformedThenBadRequest() {
+        login("{\"login\":\"admin\",\"password\":")
+                .expectStatus().isBadRequest();
+        verify(persons, never()).findByLogin(anyString());
+    }
+
+    @Test
+    void whenLoginCredentialIsMissingOrNotStringThenBadRequest() {
+        login("{\"login\":\"admin\"}")
+                .expectStatus().isBadRequest();
+        login("{\"login\":\"admin\",\"password\":{\"x\":1}}")
+                .expectStatus().isBadRequest();
+        verify(persons, never()).findByLogin(anyString());
+    }
+
+    @Test
+    void whenLoginBodyExceedsLimitThenBadRequest() {
+        login("{\"login\":\"admin\",\"password\":\"" + "x".repeat(5000) + "\"}")
+                .expectStatus().isBadRequest();
+        verify(persons, never()).findByLogin(anyString());
+    }
+
+    private WebTestClient.ResponseSpec login(String json) {
+        return client.post().uri("/login").contentType(MediaType.APPLICATION_JSON).bodyValue(json).exchange();
+    }
+}
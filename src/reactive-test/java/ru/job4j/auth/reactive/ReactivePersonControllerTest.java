@@ -0,0 +1,443 @@
+package ru.job4j.auth.reactive;
+
+import com.auth0.jwt.JWT;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.jwt.SigningKeys;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+import ru.job4j.auth.repository.person.PersonsVersion;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The scenarios of {@code PersonControllerTest} against the reactive endpoints.
+ */
+@WebFluxTest(ReactivePersonController.class)
+@Import(ReactiveWebSecurity.class)
+class ReactivePersonControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private ReactivePersonRepository persons;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private ReactiveRefreshTokens refreshTokens;
+
+    @Autowired
+    private AccessTokens accessTokens;
+
+    @Autowired
+    private SigningKeys signingKeys;
+
+    @Test
+    @WithMockUser
+    void whenFindPageThenReturnRowsAndNextCursor() {
+        when(persons.findPage(10, 2)).thenReturn(Flux.just(
+                new Person(11, "admin", "password"),
+                new Person(12, "user", "password")
+        ));
+
+        client.get().uri("/person/?after=10&limit=2").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", "12")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].id").isEqualTo(12);
+    }
+
+    @Test
+    @WithMockUser
+    void whenLastPageThenNoNextCursor() {
+        when(persons.findPage(11, 2)).thenReturn(Flux.just(new Person(12, "user", "password")));
+
+        client.get().uri("/person/?after=11&limit=2").exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser
+    void whenStreamAsNdjsonThenOneJsonDocumentPerLine() {
+        when(persons.findAll()).thenReturn(Flux.just(
+                new Person(1, "admin", "password"),
+                new Person(2, "user", "password")
+        ));
+
+        client.get().uri("/person/").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).isEqualTo(
+                        "{\"id\":1,\"login\":\"admin\",\"password\":\"password\"}\n"
+                                + "{\"id\":2,\"login\":\"user\",\"password\":\"password\"}\n");
+    }
+
+    @Test
+    @WithMockUser
+    void whenFindByIdWithExistingIdThenReturnPerson() {
+        when(persons.findById(anyInt())).thenReturn(Mono.just(new Person(1, "admin", "password")));
+
+        client.get().uri("/person/1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.login").isEqualTo("admin")
+                .jsonPath("$.password").isEqualTo("password");
+    }
+
+    @Test
+    @WithMockUser
+    void whenFindByIdWithNonExistingIdThenReturnNotFound() {
+        when(persons.findById(anyInt())).thenReturn(Mono.empty());
+
+        client.get().uri("/person/4").exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User with ID 4 not found");
+    }
+
+    @Test
+    @WithMockUser
+    void whenCreateValidPersonThenReturnCreatedPerson() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+        person.setPassword("password");
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.save(any(Person.class))).thenReturn(Mono.just(new Person(1, "admin", "password")));
+
+        post("/person/", objectMapper.writeValueAsString(person))
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.login").isEqualTo("admin")
+                .jsonPath("$.password").isEqualTo("password");
+    }
+
+    @Test
+    @WithMockUser
+    void whenCreatePersonWithoutPasswordThenReturnBadRequest() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+
+        post("/person/", objectMapper.writeValueAsString(person))
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0].password").value(containsString("Password must be empty"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenCreatePersonWithoutLoginThenReturnBadRequest() throws Exception {
+        var person = new Person();
+        person.setPassword("password");
+
+        post("/person/", objectMapper.writeValueAsString(person))
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0].login").value(containsString("Username must be empty"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdateValidPersonThenReturnOk() throws Exception {
+        when(persons.findById(1)).thenReturn(Mono.just(stored(1, "admin", "oldPassword", 0)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(1, 0, "admin", "encodedPassword")).thenReturn(Mono.just(1L));
+
+        put(objectMapper.writeValueAsString(new Person(1, "admin", "password")), null)
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"");
+        verify(persons, never()).save(any(Person.class));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdateMissingPersonThenNotFound() throws Exception {
+        when(persons.findById(9)).thenReturn(Mono.empty());
+
+        put(objectMapper.writeValueAsString(new Person(9, "admin", "password")), null)
+                .expectStatus().isNotFound();
+        verify(encoder, never()).encodeAsync(anyString());
+    }
+
+    @Test
+    @WithMockUser
+    void whenPersonDeletedWhileHashingThenNotFound() throws Exception {
+        when(persons.findById(9)).thenReturn(Mono.just(stored(9, "admin", "oldPassword", 2)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(9, 2, "admin", "encodedPassword")).thenReturn(Mono.just(0L));
+        when(persons.existsById(9)).thenReturn(Mono.just(false));
+
+        put(objectMapper.writeValueAsString(new Person(9, "admin", "password")), null)
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @WithMockUser
+    void whenPersonChangedWhileHashingThenConflict() throws Exception {
+        when(persons.findById(9)).thenReturn(Mono.just(stored(9, "admin", "oldPassword", 2)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(9, 2, "admin", "encodedPassword")).thenReturn(Mono.just(0L));
+        when(persons.existsById(9)).thenReturn(Mono.just(true));
+
+        put(objectMapper.writeValueAsString(new Person(9, "admin", "password")), null)
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdatePersonWithoutPasswordThenReturnBadRequest() throws Exception {
+        var person = new Person();
+        person.setId(5);
+        person.setLogin("admin");
+
+        put(objectMapper.writeValueAsString(person), null)
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0].password").value(containsString("Password must be empty"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdatePersonWithoutLoginThenReturnBadRequest() throws Exception {
+        var person = new Person();
+        person.setId(5);
+        person.setPassword("password");
+
+        put(objectMapper.writeValueAsString(person), null)
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0].login").value(containsString("Username must be empty"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdatePersonWithNullIdThenReturnBadRequest() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+        person.setPassword("password");
+
+        put(objectMapper.writeValueAsString(person), null)
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0].id").value(containsString("Id must be non null"));
+    }
+
+    @Test
+    void whenPasswordPatchedThenAccessTokensIssuedBeforeAreRejected() {
+        patchable("patched");
+        var token = token("patched", Instant.now().minus(Duration.ofMinutes(1)));
+        client.get().uri("/person/7").header("Authorization", token).exchange()
+                .expectStatus().isOk();
+
+        patchPassword(token);
+
+        client.get().uri("/person/7").header("Authorization", token).exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void whenLoggedInRightAfterPasswordPatchThenNewTokenIsAccepted() {
+        patchable("relogged");
+        patchPassword(token("relogged", Instant.now().minus(Duration.ofMinutes(1))));
+
+        var token = "Bearer " + accessTokens.issue("relogged", RoleAuthorities.of(Set.of(Role.USER)));
+
+        client.get().uri("/person/7").header("Authorization", token).exchange()
+                .expectStatus().isOk();
+    }
+
+    private String token(String login, Instant issuedAt) {
+        var key = signingKeys.current();
+        return "Bearer " + JWT.create()
+                .withKeyId(key.kid())
+                .withSubject(login)
+                .withIssuedAt(issuedAt)
+                .withClaim(AccessTokens.ISSUED_AT_MILLIS, issuedAt.toEpochMilli())
+                .withExpiresAt(issuedAt.plus(accessTokens.ttl()))
+                .sign(key.algorithm());
+    }
+
+    private void patchable(String login) {
+        when(persons.findById(7)).thenReturn(Mono.just(new Person(7, login, "password")));
+        when(persons.patch(7, 0, null, "encodedPassword")).thenReturn(Mono.just(1L));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+    }
+
+    private void patchPassword(String token) {
+        client.patch().uri("/person/7")
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"password\":\"newPassword\"}")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void whenTokenIsMalformedThenUnauthorized() {
+        client.get().uri("/person/1").header("Authorization", "Bearer not.a.token").exchange()
+                .expectStatus().isUnauthorized()
+                .expectHeader().valueEquals("WWW-Authenticate", "Bearer error=\"invalid_token\"");
+        verify(persons, never()).findById(anyInt());
+    }
+
+    @Test
+    void whenTokenIsExpiredThenUnauthorized() {
+        var key = signingKeys.current();
+        var issuedAt = Instant.now().minus(Duration.ofHours(2));
+        var token = JWT.create()
+                .withKeyId(key.kid())
+                .withSubject("admin")
+                .withIssuedAt(issuedAt)
+                .withExpiresAt(issuedAt.plus(Duration.ofHours(1)))
+                .sign(key.algorithm());
+
+        client.get().uri("/person/1").header("Authorization", "bearer " + token).exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    @WithMockUser
+    void whenDeleteAsUserThenForbidden() {
+        client.delete().uri("/person/1").exchange()
+                .expectStatus().isForbidden();
+        verify(persons, never()).removeById(anyInt());
+    }
+
+    @Test
+    void whenDeleteWithAdminTokenThenOkWithoutUserLookupOnRequestPath() {
+        var token = "Bearer " + accessTokens.issue("root", RoleAuthorities.of(Set.of(Role.USER, Role.ADMIN)));
+        when(persons.findById(1)).thenReturn(Mono.just(stored(1, "admin", "password", 0)));
+        when(persons.removeById(1)).thenReturn(Mono.just(1L));
+
+        client.delete().uri("/person/1").header("Authorization", token).exchange()
+                .expectStatus().isOk();
+        verify(persons).removeById(1);
+        verify(persons, never()).findByLogin(anyString());
+    }
+
+    @Test
+    void whenDeleteMissingPersonThenNotFound() {
+        var token = "Bearer " + accessTokens.issue("root", RoleAuthorities.of(Set.of(Role.USER, Role.ADMIN)));
+        when(persons.findById(5)).thenReturn(Mono.empty());
+        when(persons.removeById(5)).thenReturn(Mono.just(0L));
+
+        client.delete().uri("/person/5").header("Authorization", token).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @WithMockUser
+    void whenFindByIdWithCurrentETagThenNotModified() {
+        when(persons.findById(1)).thenReturn(Mono.just(stored(1, "admin", "password", 3)));
+
+        client.get().uri("/person/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"");
+        client.get().uri("/person/1").header("If-None-Match", "\"3\"").exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @WithMockUser
+    void whenListUnchangedThenNotModifiedAndChangedThenNewETag() {
+        var unchanged = stored(1, "admin", "password", 5);
+        var etag = PersonsVersion.of(List.of(unchanged)).etag();
+        when(persons.findAll()).thenReturn(Flux.just(unchanged));
+
+        client.get().uri("/person/").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+        client.get().uri("/person/").header("If-None-Match", etag).exchange()
+                .expectStatus().isNotModified();
+
+        when(persons.findAll()).thenReturn(Flux.just(stored(1, "admin", "password", 6)));
+        client.get().uri("/person/").header("If-None-Match", etag).exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdateWithStaleIfMatchThenPreconditionFailed() throws Exception {
+        when(persons.findById(1)).thenReturn(Mono.just(stored(1, "admin", "oldPassword", 4)));
+
+        put(objectMapper.writeValueAsString(new Person(1, "admin", "password")), "\"3\"")
+                .expectStatus().isEqualTo(412);
+        verify(encoder, never()).encodeAsync(anyString());
+        verify(persons, never()).patch(anyInt(), anyLong(), any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void whenPatchWithMatchingIfMatchThenNewETagIsReturned() {
+        when(persons.findById(1)).thenReturn(Mono.just(stored(1, "admin", "password", 4)));
+        when(persons.patch(1, 4, "root", null)).thenReturn(Mono.just(1L));
+
+        client.patch().uri("/person/1")
+                .header("If-Match", "W/\"1\", \"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"login\":\"root\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"5\"")
+                .expectBody()
+                .jsonPath("$.login").isEqualTo("root")
+                .jsonPath("$.password").isEqualTo("password");
+    }
+
+    private WebTestClient.ResponseSpec post(String uri, String json) {
+        return client.post().uri(uri).contentType(MediaType.APPLICATION_JSON).bodyValue(json).exchange();
+    }
+
+    private WebTestClient.ResponseSpec put(String json, String ifMatch) {
+        var request = client.put().uri("/person/").contentType(MediaType.APPLICATION_JSON);
+        if (ifMatch != null) {
+            request.header("If-Match", ifMatch);
+        }
+        return request.bodyValue(json).exchange();
+    }
+
+    private static Person stored(int id, String login, String password, long version) {
+        var person = new Person(id, login, password);
+        person.setVersion(version);
+        return person;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.job4j.auth.reactive;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the statements against an in-memory H2 in PostgreSQL mode.
+ */
+class ReactivePersonRepositoryTest {
+
+    private final ConnectionFactory connections = ConnectionFactories.get(
+            "r2dbc:h2:mem:///reactive-persons;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+    private final DatabaseClient client = DatabaseClient.create(connections);
+    private final ReactivePersonRepository persons = new ReactivePersonRepository(client);
+
+    @BeforeEach
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource("reactive-schema.sql")).populate(connections).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.sql("delete from person").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    void whenSavedThenIdComesFromTheSequenceAndLoginLoadsRoles() {
+        var saved = persons.save(new Person(null, "admin", "hash")).block();
+
+        assertThat(saved.getId()).isNotNull();
+        StepVerifier.create(persons.findByLogin("admin"))
+                .assertNext(found -> {
+                    assertThat(found.getId()).isEqualTo(saved.getId());
+                    assertThat(found.getPassword()).isEqualTo("hash");
+                    assertThat(found.getRoles()).isEqualTo(Set.of(Role.USER));
+                })
+                .verifyComplete();
+        StepVerifier.create(persons.findByLogin("ghost")).verifyComplete();
+    }
+
+    @Test
+    void whenGrantedThenRoleAddedOnceAndMissingLoginIgnored() {
+        persons.save(new Person(null, "root", "hash")).block();
+
+        StepVerifier.create(persons.grant("root", Role.ADMIN)).expectNext(1L).verifyComplete();
+        StepVerifier.create(persons.grant("root", Role.ADMIN)).expectNext(0L).verifyComplete();
+        StepVerifier.create(persons.grant("ghost", Role.ADMIN)).expectNext(0L).verifyComplete();
+        StepVerifier.create(persons.findByLogin("root"))
+                .assertNext(found -> assertThat(found.getRoles()).isEqualTo(Set.of(Role.USER, Role.ADMIN)))
+                .verifyComplete();
+    }
+
+    @Test
+    void whenPatchedThenOnlyGivenColumnsChangeAndStaleVersionUpdatesNothing() {
+        int id = persons.save(new Person(null, "admin", "hash")).block().getId();
+
+        StepVerifier.create(persons.patch(id, 0, "root", null)).expectNext(1L).verifyComplete();
+        StepVerifier.create(persons.patch(id, 0, null, "other")).expectNext(0L).verifyComplete();
+        StepVerifier.create(persons.findById(id))
+                .assertNext(found -> {
+                    assertThat(found.getLogin()).isEqualTo("root");
+                    assertThat(found.getPassword()).isEqualTo("hash");
+                    assertThat(found.getVersion()).isEqualTo(1);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void whenRemovedThenRolesGoWithThePerson() {
+        int id = persons.save(new Person(null, "admin", "hash")).block().getId();
+
+        StepVerifier.create(persons.removeById(id)).expectNext(1L).verifyComplete();
+        StepVerifier.create(persons.removeById(id)).expectNext(0L).verifyComplete();
+        StepVerifier.create(persons.existsById(id)).expectNext(false).verifyComplete();
+        StepVerifier.create(client.sql("select count(*) as c from person_roles")
+                        .map(row -> row.get("c", Long.class)).one())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenPagedThenRowsAfterTheCursorInIdOrder() {
+        int first = persons.save(new Person(null, "a", "hash")).block().getId();
+        int second = persons.save(new Person(null, "b", "hash")).block().getId();
+        int third = persons.save(new Person(null, "c", "hash")).block().getId();
+
+        StepVerifier.create(persons.findPage(first, 1).map(Person::getId)).expectNext(second).verifyComplete();
+        StepVerifier.create(persons.findAll().map(Person::getId)).expectNext(first, second, third).verifyComplete();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.job4j.auth.reactive;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the statements against an in-memory H2 in PostgreSQL mode.
+ */
+class ReactiveRefreshTokensTest {
+
+    private final ConnectionFactory connections = ConnectionFactories.get(
+            "r2dbc:h2:mem:///reactive-refresh-tokens;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+    private final DatabaseClient client = DatabaseClient.create(connections);
+    private final ReactiveRefreshTokens tokens = new ReactiveRefreshTokens(client, Duration.ofDays(14));
+
+    @BeforeEach
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource("reactive-schema.sql")).populate(connections).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.sql("delete from refresh_token").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    void whenRevokedThenOnlyTokensOfThatLoginAreDeleted() {
+        tokens.issue("admin").block();
+        tokens.issue("admin").block();
+        tokens.issue("user").block();
+
+        StepVerifier.create(tokens.revoke("admin")).expectNext(2L).verifyComplete();
+        assertThat(client.sql("select login from refresh_token").map(row -> row.get("login", String.class))
+                .all().collectList().block()).containsExactly("user");
+    }
+}
@@ -0,0 +1,68 @@
+package ru.job4j.auth.reactive;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the statements against an in-memory H2 in PostgreSQL mode.
+ */
+class ReactiveTokenWatermarksTest {
+
+    private final ConnectionFactory connections = ConnectionFactories.get(
+            "r2dbc:h2:mem:///reactive-watermarks;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+    private final DatabaseClient client = DatabaseClient.create(connections);
+    private final ReactiveTokenWatermarks watermarks = new ReactiveTokenWatermarks(client);
+
+    @BeforeEach
+    void setUp() {
+        new ResourceDatabasePopulator(new ClassPathResource("reactive-schema.sql")).populate(connections).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.sql("delete from token_watermark").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    void whenWrittenThenWatermarkIsStored() {
+        watermarks.write("admin", Instant.now()).block();
+
+        assertThat(notBefore("admin")).isNotNull();
+        assertThat(notBefore("user")).isNull();
+    }
+
+    @Test
+    void whenEarlierWatermarkWrittenThenLaterOneIsKept() {
+        var later = Instant.now();
+        watermarks.write("admin", later).block();
+        var stored = notBefore("admin");
+        watermarks.write("admin", later.minusSeconds(60)).block();
+
+        assertThat(notBefore("admin")).isEqualTo(stored);
+
+        watermarks.write("admin", later.plusSeconds(60)).block();
+        assertThat(notBefore("admin")).isAfter(stored);
+    }
+
+    /**
+     * Read back as a local date-time: only the order of the stored values matters here.
+     */
+    private LocalDateTime notBefore(String login) {
+        return client.sql("select not_before from token_watermark where login = :login")
+                .bind("login", login)
+                .map(row -> row.get("not_before", LocalDateTime.class))
+                .one()
+                .block();
+    }
+}
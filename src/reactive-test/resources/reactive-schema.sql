@@ -0,0 +1,27 @@
+create sequence if not exists person_id_seq start with 1 increment by 50;
+
+create table if not exists person (
+    id int primary key not null,
+    login varchar(2000) unique,
+    password varchar(2000),
+    version bigint not null default 0
+);
+
+create table if not exists person_roles (
+    person_id int not null references person (id) on delete cascade,
+    role varchar(32) not null,
+    primary key (person_id, role)
+);
+
+create table if not exists refresh_token (
+    id varchar(64) primary key not null,
+    login varchar(2000) not null,
+    expires_at timestamp not null,
+    used boolean not null default false
+);
+
+create table if not exists token_watermark (
+    login varchar(2000) primary key not null,
+    not_before timestamp not null,
+    updated_at timestamp not null
+);
@@ -0,0 +1,125 @@
+package ru.job4j.auth.reactive;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
+import ru.job4j.auth.dto.Credentials;
+import ru.job4j.auth.dto.TokenDto;
+import ru.job4j.auth.filter.LoginJson;
+import ru.job4j.auth.filter.MalformedLoginException;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.ratelimit.RateLimitedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.HEADER_STRING;
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.TOKEN_PREFIX;
+
+/**
+ * Reactive port of {@code JWTAuthenticationFilter}: answers {@code POST /login} with an access
+ * token in the header and a refresh token in the body. The body is buffered up to the login size
+ * limit only, and the failures map to the same statuses.
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    public static final String LOGIN_URL = "/login";
+
+    private static final ServerWebExchangeMatcher LOGIN =
+            ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, LOGIN_URL);
+
+    private final ReactiveLoginAuthenticator authenticator;
+    private final LoginJson json;
+    private final AccessTokens accessTokens;
+    private final ReactiveRefreshTokens refreshTokens;
+
+    public JwtAuthenticationWebFilter(ReactiveLoginAuthenticator authenticator, LoginJson json,
+                                      AccessTokens accessTokens, ReactiveRefreshTokens refreshTokens) {
+        this.authenticator = authenticator;
+        this.json = json;
+        this.accessTokens = accessTokens;
+        this.refreshTokens = refreshTokens;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return LOGIN.matches(exchange)
+                .flatMap(match -> match.isMatch() ? login(exchange) : chain.filter(exchange));
+    }
+
+    private Mono<Void> login(ServerWebExchange exchange) {
+        return DataBufferUtils.join(exchange.getRequest().getBody(), json.maxBodyBytes())
+                .map(this::read)
+                .switchIfEmpty(Mono.fromCallable(() -> json.read(InputStream.nullInputStream())))
+                .onErrorMap(DataBufferLimitException.class, e -> json.tooLarge())
+                .flatMap(creds -> authenticator.authenticate(
+                        remoteAddress(exchange.getRequest()), creds.login(), creds.password()))
+                .flatMap(auth -> success(exchange.getResponse(), auth))
+                .onErrorResume(AuthenticationException.class, e -> failure(exchange.getResponse(), e));
+    }
+
+    private Credentials read(DataBuffer body) {
+        try (InputStream in = body.asInputStream(true)) {
+            return json.read(in);
+        } catch (IOException e) {
+            throw new MalformedLoginException("Unable to read login request", e);
+        }
+    }
+
+    private Mono<Void> success(ServerHttpResponse response, Authentication auth) {
+        String username = auth.getName();
+        response.getHeaders().add(HEADER_STRING, TOKEN_PREFIX + accessTokens.issue(username, auth.getAuthorities()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return refreshTokens.issue(username)
+                .flatMap(refresh -> response.writeWith(Mono.fromCallable(() ->
+                        write(response, new TokenDto(refresh, accessTokens.ttl().toSeconds())))));
+    }
+
+    private DataBuffer write(ServerHttpResponse response, TokenDto tokens) throws IOException {
+        DataBuffer buffer = response.bufferFactory().allocateBuffer(256);
+        try (OutputStream out = buffer.asOutputStream()) {
+            json.write(out, tokens);
+            return buffer;
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    private static Mono<Void> failure(ServerHttpResponse response, AuthenticationException failed) {
+        if (failed instanceof PasswordEncoderSaturatedException saturated) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(saturated.getRetryAfterSeconds()));
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        } else if (failed instanceof RateLimitedException limited) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(limited.getRetryAfterSeconds()));
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        } else if (failed instanceof MalformedLoginException) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+        } else {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        }
+        return response.setComplete();
+    }
+
+    static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return address == null || address.getAddress() == null ? "unknown" : address.getAddress().getHostAddress();
+    }
+}
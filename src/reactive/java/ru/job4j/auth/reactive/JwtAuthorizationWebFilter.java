@@ -0,0 +1,58 @@
+package ru.job4j.auth.reactive;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.cache.VerifiedTokenCache;
+import ru.job4j.auth.jwt.TokenVerifier;
+
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.HEADER_STRING;
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.TOKEN_PREFIX;
+import static ru.job4j.auth.filter.JWTAuthorizationFilter.INVALID_TOKEN;
+
+/**
+ * Reactive port of {@code JWTAuthorizationFilter}. Verification is a cache read in the common case
+ * and stays on the event loop; the authentication is put into the Reactor context of the rest of
+ * the chain instead of a thread-bound holder.
+ */
+public class JwtAuthorizationWebFilter implements WebFilter {
+
+    private final TokenVerifier verifier;
+
+    public JwtAuthorizationWebFilter(TokenVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HEADER_STRING);
+
+        if (header == null || !header.regionMatches(true, 0, TOKEN_PREFIX, 0, TOKEN_PREFIX.length())) {
+            return chain.filter(exchange);
+        }
+
+        VerifiedTokenCache.Verified verified = verify(header.substring(TOKEN_PREFIX.length()));
+        if (verified == null) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, INVALID_TOKEN);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return response.setComplete();
+        }
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(verified.authentication()));
+    }
+
+    private VerifiedTokenCache.Verified verify(String token) {
+        try {
+            return verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.job4j.auth.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import ru.job4j.auth.model.Role;
+
+import java.util.List;
+
+/**
+ * The reactive counterpart of {@code AdminProvisioner}: grants {@link Role#ADMIN} to the existing
+ * accounts listed in {@code auth.admins} once the application is up.
+ */
+@Component
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdminProvisioner {
+
+    private final ReactivePersonRepository persons;
+    private final List<String> admins;
+
+    public ReactiveAdminProvisioner(ReactivePersonRepository persons,
+                                    @Value("${auth.admins:}") List<String> admins) {
+        this.persons = persons;
+        this.admins = admins;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void grant() {
+        Flux.fromIterable(admins)
+                .concatMap(login -> persons.grant(login, Role.ADMIN)
+                        .doOnNext(granted -> {
+                            if (granted > 0) {
+                                log.info("Granted {} to {}", Role.ADMIN, login);
+                            }
+                        }))
+                .blockLast();
+    }
+}
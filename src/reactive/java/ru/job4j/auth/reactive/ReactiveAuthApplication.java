@@ -0,0 +1,35 @@
+package ru.job4j.auth.reactive;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import ru.job4j.auth.AuthConfig;
+import ru.job4j.auth.GlobalExceptionHandler;
+
+/**
+ * The person and auth endpoints on WebFlux and R2DBC, started with the {@code reactive} profile.
+ * The servlet classes stay on the classpath of this build, so every component here is limited to
+ * a reactive context and is skipped when the servlet application scans this package.
+ */
+@SpringBootApplication
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Import({AuthConfig.class, GlobalExceptionHandler.class})
+public class ReactiveAuthApplication {
+
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveAuthApplication.class).profiles(PROFILE).run(args);
+    }
+
+    /**
+     * Tomcat is on the classpath too and would otherwise be picked as the reactive server.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
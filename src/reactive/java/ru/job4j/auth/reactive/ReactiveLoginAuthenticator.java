@@ -0,0 +1,91 @@
+package ru.job4j.auth.reactive;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.cache.LoginCache;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+
+import java.util.Collection;
+
+/**
+ * Reactive counterpart of {@code LoginAuthenticator}: rate limits, then the login cache, then one
+ * statement for the person and its roles and BCrypt on the bounded pool. An unknown login is
+ * compared against a dummy hash, so it takes as long as a wrong password.
+ */
+public class ReactiveLoginAuthenticator {
+
+    private final ReactivePersonRepository persons;
+    private final ReactivePasswordEncoder passwords;
+    private final LoginCache logins;
+    private final LoginThrottle throttle;
+    private final AuthMetrics metrics;
+    private final Mono<String> missingUserHash;
+
+    public ReactiveLoginAuthenticator(ReactivePersonRepository persons, ReactivePasswordEncoder passwords,
+                                      LoginCache logins, LoginThrottle throttle, AuthMetrics metrics) {
+        this.persons = persons;
+        this.passwords = passwords;
+        this.logins = logins;
+        this.throttle = throttle;
+        this.metrics = metrics;
+        this.missingUserHash = passwords.encode("userNotFoundPassword").cache();
+    }
+
+    public Mono<Authentication> authenticate(String ip, String login, String password) {
+        return Mono.defer(() -> {
+            metrics.loginAttempt();
+            long start = System.nanoTime();
+            return check(ip, login, password)
+                    .doOnSuccess(auth -> metrics.login(true, start))
+                    .doOnError(e -> metrics.login(false, start));
+        });
+    }
+
+    private Mono<Authentication> check(String ip, String login, String password) {
+        throttle.checkLogin(ip, login);
+        Collection<? extends GrantedAuthority> cached = logins.authorities(login, password);
+        if (cached != null) {
+            return Mono.just(authenticated(login, cached));
+        }
+        long generation = logins.generation(login);
+        long lookup = System.nanoTime();
+        return persons.findByLogin(login)
+                .doFinally(signal -> metrics.userLookup(lookup))
+                .flatMap(person -> passwords.matches(password, person.getPassword())
+                        .flatMap(matched -> matched ? Mono.just(person) : Mono.error(badCredentials())))
+                .switchIfEmpty(Mono.defer(() -> rejectMissing(password)))
+                .map(person -> {
+                    var authorities = RoleAuthorities.of(person.getRoles());
+                    logins.put(login, password, authorities, generation);
+                    return authenticated(login, authorities);
+                })
+                .onErrorMap(BadCredentialsException.class, e -> {
+                    throttle.loginFailed(login);
+                    return e;
+                });
+    }
+
+    /**
+     * Completes with {@link BadCredentialsException} either way, after the same BCrypt work.
+     */
+    private Mono<Person> rejectMissing(String password) {
+        return missingUserHash
+                .flatMap(hash -> passwords.matches(password, hash))
+                .then(Mono.error(badCredentials()));
+    }
+
+    private static BadCredentialsException badCredentials() {
+        return new BadCredentialsException("Bad credentials");
+    }
+
+    private static Authentication authenticated(String login, Collection<? extends GrantedAuthority> authorities) {
+        return UsernamePasswordAuthenticationToken.authenticated(new User(login, "", authorities), null, authorities);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.job4j.auth.reactive;
+
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
+
+/**
+ * Runs BCrypt on the bounded pool of {@link BoundedPasswordEncoder}, never on an event loop. The
+ * hash is submitted on subscription and a full queue fails the {@code Mono} at once with
+ * {@link PasswordEncoderSaturatedException}.
+ */
+public class ReactivePasswordEncoder {
+
+    private final BoundedPasswordEncoder encoder;
+
+    public ReactivePasswordEncoder(BoundedPasswordEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return Mono.fromFuture(() -> encoder.encodeAsync(rawPassword));
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return Mono.fromFuture(() -> encoder.matchesAsync(rawPassword, encodedPassword));
+    }
+}
@@ -0,0 +1,205 @@
+package ru.job4j.auth.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.Operation;
+import ru.job4j.auth.dto.PersonDto;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonsVersion;
+import ru.job4j.auth.stream.KeysetPage;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The contract of {@code PersonController} on WebFlux. Rows are read and written through R2DBC and
+ * hashing waits on the BCrypt pool, so no request holds a thread while it waits.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/person")
+public class ReactivePersonController {
+
+    private final ReactivePersonRepository persons;
+    private final ReactivePasswordEncoder encoder;
+    private final ApplicationEventPublisher events;
+
+    @Value("${auth.page.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * The ETag is taken from the ids and versions of the rows read, so an unchanged list is still
+     * read but answered with a 304 instead of being sent again.
+     */
+    @GetMapping("/")
+    public Mono<ResponseEntity<List<Person>>> findAll() {
+        return this.persons.findAll()
+                .collectList()
+                .map(all -> ResponseEntity.ok().eTag(PersonsVersion.of(all).etag()).body(all));
+    }
+
+    @GetMapping(value = "/", params = "limit")
+    public Mono<ResponseEntity<List<Person>>> findPage(@RequestParam(defaultValue = "0") int after,
+                                                       @RequestParam int limit) {
+        int size = KeysetPage.limit(limit, maxLimit);
+        return this.persons.findPage(after, size).collectList().map(rows -> KeysetPage.of(rows, size));
+    }
+
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Person> stream() {
+        return this.persons.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Person>> findById(@PathVariable int id) {
+        return this.persons.findById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .map(ReactivePersonController::withETag);
+    }
+
+    @PostMapping("/")
+    public Mono<ResponseEntity<Person>> create(@Validated(Operation.OnCreate.class) @RequestBody Person person) {
+        return encoder.encode(person.getPassword())
+                .flatMap(hash -> {
+                    person.setPassword(hash);
+                    return this.persons.save(person);
+                })
+                .map(saved -> {
+                    this.events.publishEvent(UserChangedEvent.of(saved.getId(), saved.getLogin()));
+                    return new ResponseEntity<>(saved, HttpStatus.CREATED);
+                });
+    }
+
+    @PutMapping("/")
+    public Mono<ResponseEntity<Void>> update(
+            @Validated(Operation.OnUpdate.class) @RequestBody Person body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        int id = body.getId();
+        return current(id, ifMatch)
+                .flatMap(current -> encoder.encode(body.getPassword())
+                        .flatMap(hash -> applyPatch(id, current, body.getLogin(), hash)))
+                .map(version -> ResponseEntity.ok().eTag(etag(version)).build());
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Person>> patch(
+            @PathVariable int id, @RequestBody PersonDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return current(id, ifMatch)
+                .flatMap(current -> {
+                    if (dto.getPassword() == null) {
+                        return patched(id, current, dto.getLogin(), null);
+                    }
+                    return encoder.encode(dto.getPassword())
+                            .flatMap(hash -> patched(id, current, dto.getLogin(), hash));
+                });
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable int id) {
+        return this.persons.findById(id)
+                .map(person -> Optional.of(person.getLogin()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(login -> this.persons.removeById(id)
+                        .flatMap(removed -> removed == 0 ? Mono.error(notFound(id)) : Mono.just(login)))
+                .map(login -> {
+                    this.events.publishEvent(login.map(l -> UserChangedEvent.of(id, l))
+                            .orElseGet(UserChangedEvent::anyUser));
+                    login.ifPresent(l -> this.events.publishEvent(TokensRevokedEvent.now(l)));
+                    return ResponseEntity.ok().build();
+                });
+    }
+
+    private static ResponseStatusException notFound(int id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "User with ID %d not found".formatted(id));
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static ResponseEntity<Person> withETag(Person person) {
+        return ResponseEntity.ok().eTag(etag(person.getVersion())).body(person);
+    }
+
+    private Mono<Person> current(int id, String ifMatch) {
+        return this.persons.findById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .doOnNext(person -> checkIfMatch(ifMatch, id, person.getVersion()));
+    }
+
+    /**
+     * Strong comparison as required for If-Match: weak tags never match.
+     */
+    private static void checkIfMatch(String ifMatch, int id, long version) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return;
+        }
+        var etag = etag(version);
+        for (String tag : ifMatch.split(",")) {
+            if (etag.equals(tag.trim())) {
+                return;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                "User with ID %d has been modified".formatted(id));
+    }
+
+    private Mono<ResponseEntity<Person>> patched(int id, Person current, String login, String password) {
+        return applyPatch(id, current, login, password).map(version -> {
+            var person = new Person(id,
+                    login == null ? current.getLogin() : login,
+                    password == null ? current.getPassword() : password);
+            person.setVersion(version);
+            return withETag(person);
+        });
+    }
+
+    /**
+     * One UPDATE guarded by the version read in {@link #current}. When no row is updated, the
+     * person is either gone (404) or was changed in between (409).
+     *
+     * @return the new version
+     */
+    private Mono<Long> applyPatch(int id, Person current, String login, String password) {
+        return this.persons.patch(id, current.getVersion(), login, password)
+                .flatMap(updated -> updated == 0 ? missingOrChanged(id) : Mono.just(current.getVersion() + 1))
+                .doOnNext(version -> {
+                    var oldLogin = current.getLogin();
+                    this.events.publishEvent(UserChangedEvent.of(id, oldLogin));
+                    boolean renamed = login != null && !Objects.equals(oldLogin, login);
+                    if (renamed) {
+                        this.events.publishEvent(UserChangedEvent.of(id, login));
+                    }
+                    if (password != null || renamed) {
+                        this.events.publishEvent(TokensRevokedEvent.now(oldLogin));
+                    }
+                });
+    }
+
+    private Mono<Long> missingOrChanged(int id) {
+        return this.persons.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new OptimisticLockingFailureException("User with ID %d was modified concurrently".formatted(id))
+                        : notFound(id)));
+    }
+}
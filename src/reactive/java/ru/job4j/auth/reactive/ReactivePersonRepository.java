@@ -0,0 +1,166 @@
+package ru.job4j.auth.reactive;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * R2DBC access to the tables of {@link Person}, with the same statements as the JPA repository:
+ * a patch is one UPDATE guarded by the version and a delete leaves the roles to the foreign key.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePersonRepository {
+
+    private static final String COLUMNS = "select id, login, password, version from person";
+
+    private final DatabaseClient client;
+
+    public ReactivePersonRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Flux<Person> findAll() {
+        return client.sql(COLUMNS + " order by id")
+                .map(ReactivePersonRepository::person)
+                .all();
+    }
+
+    public Flux<Person> findPage(int after, int limit) {
+        return client.sql(COLUMNS + " where id > :after order by id limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactivePersonRepository::person)
+                .all();
+    }
+
+    public Mono<Person> findById(int id) {
+        return client.sql(COLUMNS + " where id = :id")
+                .bind("id", id)
+                .map(ReactivePersonRepository::person)
+                .one();
+    }
+
+    /**
+     * The person with its roles, read in one statement.
+     */
+    public Mono<Person> findByLogin(String login) {
+        return client.sql("select p.id, p.login, p.password, p.version, r.role from person p "
+                        + "left join person_roles r on r.person_id = p.id where p.login = :login")
+                .bind("login", login)
+                .map(row -> new PersonRole(person(row), row.get("role", String.class)))
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(ReactivePersonRepository::withRoles);
+    }
+
+    public Mono<Boolean> existsById(int id) {
+        return client.sql("select 1 from person where id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .hasElement();
+    }
+
+    /**
+     * The id is taken straight from {@code person_id_seq}. JPA allocates blocks of 50 that end at
+     * the value it reads, so a value read here belongs to no one else.
+     */
+    @Transactional
+    public Mono<Person> save(Person person) {
+        return client.sql("insert into person (id, login, password, version) "
+                        + "values (nextval('person_id_seq'), :login, :password, 0)")
+                .bind("login", person.getLogin())
+                .bind("password", person.getPassword())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .flatMap(id -> insertRoles(id, person.getRoles()).thenReturn(id))
+                .map(id -> {
+                    person.setId(id);
+                    person.setVersion(0);
+                    return person;
+                });
+    }
+
+    /**
+     * Sets the non-null values if the person still has {@code version}.
+     *
+     * @return the number of updated rows, 0 or 1
+     */
+    public Mono<Long> patch(int id, long version, String login, String password) {
+        return client.sql("update person set login = coalesce(:login, login), "
+                        + "password = coalesce(:password, password), version = version + 1 "
+                        + "where id = :id and version = :version")
+                .bind("login", Parameter.fromOrEmpty(login, String.class))
+                .bind("password", Parameter.fromOrEmpty(password, String.class))
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> removeById(int id) {
+        return client.sql("delete from person where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * @return 1 when the role was added, 0 when there is no such login or it has the role already
+     */
+    public Mono<Long> grant(String login, Role role) {
+        return client.sql("insert into person_roles (person_id, role) select p.id, :role from person p "
+                        + "where p.login = :login and not exists "
+                        + "(select 1 from person_roles r where r.person_id = p.id and r.role = :role)")
+                .bind("login", login)
+                .bind("role", role.name())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Void> insertRoles(int id, Set<Role> roles) {
+        return Flux.fromIterable(roles)
+                .concatMap(role -> client.sql("insert into person_roles (person_id, role) values (:id, :role)")
+                        .bind("id", id)
+                        .bind("role", role.name())
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private static Person person(Readable row) {
+        var person = new Person(row.get("id", Integer.class), row.get("login", String.class),
+                row.get("password", String.class));
+        person.setVersion(row.get("version", Long.class));
+        return person;
+    }
+
+    private static Person withRoles(List<PersonRole> rows) {
+        var person = rows.get(0).person();
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (PersonRole row : rows) {
+            if (row.role() != null) {
+                roles.add(Role.valueOf(row.role()));
+            }
+        }
+        person.setRoles(roles);
+        return person;
+    }
+
+    private record PersonRole(Person person, String role) {
+    }
+}
@@ -0,0 +1,59 @@
+package ru.job4j.auth.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Issues refresh tokens into the table {@link RefreshTokenService} rotates them from, so a token
+ * issued here is redeemed by a servlet instance. A revocation deletes the login's tokens, as
+ * {@link RefreshTokenService#onRevoked} does.
+ */
+@Service
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRefreshTokens {
+
+    private final DatabaseClient client;
+    private final Duration ttl;
+
+    public ReactiveRefreshTokens(DatabaseClient client,
+                                 @Value("${auth.jwt.refresh-token-ttl:14d}") Duration ttl) {
+        this.client = client;
+        this.ttl = ttl;
+    }
+
+    public Mono<String> issue(String login) {
+        String token = RefreshTokenService.generate();
+        return client.sql("insert into refresh_token (id, login, expires_at, used) "
+                        + "values (:id, :login, :expiresAt, false)")
+                .bind("id", RefreshTokenService.digest(token))
+                .bind("login", login)
+                .bind("expiresAt", Instant.now().plus(ttl))
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(token);
+    }
+
+    @EventListener
+    public void onRevoked(TokensRevokedEvent event) {
+        revoke(event.login())
+                .subscribe(null, e -> log.warn("Refresh tokens of {} were not deleted", event.login(), e));
+    }
+
+    public Mono<Long> revoke(String login) {
+        return client.sql("delete from refresh_token where login = :login")
+                .bind("login", login)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.job4j.auth.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.jwt.TokenWatermarkSync;
+
+import java.time.Instant;
+
+/**
+ * Writes revocations made here to the {@code token_watermark} table that {@link TokenWatermarkSync}
+ * polls, so servlet instances reject the revoked access tokens too. A later watermark is never
+ * moved back.
+ */
+@Component
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTokenWatermarks {
+
+    private final DatabaseClient client;
+
+    public ReactiveTokenWatermarks(DatabaseClient client) {
+        this.client = client;
+    }
+
+    @EventListener
+    public void onRevoked(TokensRevokedEvent event) {
+        write(event.login(), event.notBefore())
+                .subscribe(null, e -> log.warn("Token watermark of {} was not written", event.login(), e));
+    }
+
+    public Mono<Void> write(String login, Instant notBefore) {
+        Instant now = Instant.now();
+        return update(login, notBefore, now)
+                .flatMap(updated -> updated > 0 ? Mono.empty() : insert(login, notBefore, now))
+                .onErrorResume(DataIntegrityViolationException.class, e -> update(login, notBefore, now))
+                .then();
+    }
+
+    private Mono<Long> update(String login, Instant notBefore, Instant now) {
+        return client.sql("update token_watermark set not_before = greatest(not_before, :notBefore), "
+                        + "updated_at = :updatedAt where login = :login")
+                .bind("login", login)
+                .bind("notBefore", notBefore)
+                .bind("updatedAt", now)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Long> insert(String login, Instant notBefore, Instant now) {
+        return client.sql("insert into token_watermark (login, not_before, updated_at) "
+                        + "values (:login, :notBefore, :updatedAt)")
+                .bind("login", login)
+                .bind("notBefore", notBefore)
+                .bind("updatedAt", now)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.job4j.auth.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.job4j.auth.Operation;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+import ru.job4j.auth.stream.KeysetPage;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/users")
+public class ReactiveUserController {
+
+    private final ReactivePersonRepository persons;
+    private final ReactivePasswordEncoder encoder;
+    private final ApplicationEventPublisher events;
+    private final LoginThrottle throttle;
+
+    @Value("${auth.page.max-limit:1000}")
+    private int maxLimit;
+
+    @PostMapping("/sign-up")
+    public Mono<ResponseEntity<Void>> signUp(@Validated(Operation.OnCreate.class) @RequestBody Person person,
+                                             ServerHttpRequest request) {
+        throttle.checkSignUp(JwtAuthenticationWebFilter.remoteAddress(request));
+        return encoder.encode(person.getPassword())
+                .flatMap(hash -> {
+                    person.setPassword(hash);
+                    return persons.save(person);
+                })
+                .map(saved -> {
+                    events.publishEvent(UserChangedEvent.of(saved.getId(), saved.getLogin()));
+                    return ResponseEntity.ok().build();
+                });
+    }
+
+    @GetMapping("/all")
+    public Mono<List<Person>> findAll() {
+        return persons.findAll().collectList();
+    }
+
+    @GetMapping(value = "/all", params = "limit")
+    public Mono<ResponseEntity<List<Person>>> findPage(@RequestParam(defaultValue = "0") int after,
+                                                       @RequestParam int limit) {
+        int size = KeysetPage.limit(limit, maxLimit);
+        return persons.findPage(after, size).collectList().map(rows -> KeysetPage.of(rows, size));
+    }
+
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Person> stream() {
+        return persons.findAll();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.job4j.auth.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import ru.job4j.auth.AuthConfig;
+import ru.job4j.auth.cache.LoginCache;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.filter.LoginJson;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.TokenVerifier;
+import ru.job4j.auth.metrics.AuthMetrics;
+import ru.job4j.auth.ratelimit.LoginThrottle;
+
+import static ru.job4j.auth.filter.JWTAuthenticationFilter.SIGN_UP_URL;
+
+/**
+ * The rules of {@code WebSecurity} on WebFlux: stateless, the login and bearer token filters as
+ * {@code WebFilter}s, and 403 for a request without credentials.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+@Import(AuthConfig.class)
+public class ReactiveWebSecurity {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         ReactiveLoginAuthenticator authenticator,
+                                                         LoginJson loginJson,
+                                                         AccessTokens accessTokens,
+                                                         ReactiveRefreshTokens refreshTokens,
+                                                         TokenVerifier verifier) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .cors(cors -> {
+                })
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
+                        .pathMatchers(HttpMethod.POST, SIGN_UP_URL).permitAll()
+                        .anyExchange().authenticated()
+                )
+                .exceptionHandling(handling -> handling
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .addFilterAt(new JwtAuthenticationWebFilter(authenticator, loginJson, accessTokens, refreshTokens),
+                        SecurityWebFiltersOrder.FORM_LOGIN)
+                .addFilterAt(new JwtAuthorizationWebFilter(verifier), SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+
+    @Bean
+    public ReactivePasswordEncoder reactivePasswordEncoder(BoundedPasswordEncoder encoder) {
+        return new ReactivePasswordEncoder(encoder);
+    }
+
+    @Bean
+    public LoginJson loginJson(ObjectMapper objectMapper,
+                               @Value("${auth.login.max-body-size:4KB}") DataSize maxBodySize) {
+        return new LoginJson(objectMapper, (int) maxBodySize.toBytes());
+    }
+
+    @Bean
+    public ReactiveLoginAuthenticator reactiveLoginAuthenticator(ReactivePersonRepository persons,
+                                                                 ReactivePasswordEncoder passwords,
+                                                                 LoginCache logins, LoginThrottle throttle,
+                                                                 AuthMetrics metrics) {
+        return new ReactiveLoginAuthenticator(persons, passwords, logins, throttle, metrics);
+    }
+
+    @Bean
+    CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", AuthConfig.corsConfiguration());
+        return source;
+    }
+}
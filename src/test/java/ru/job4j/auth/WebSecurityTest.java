@@ -0,0 +1,83 @@
+package ru.job4j.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Access rules of the actuator endpoints. The endpoints are stood in for by a plain controller,
+ * since only the security chain in front of them is under test.
+ */
+@WebMvcTest(value = WebSecurityTest.Actuator.class, properties = "management.server.port=8081")
+@Import({WebSecurity.class, WebSecurityTest.Actuator.class})
+class WebSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    @Test
+    void whenAnonymousAsksHealthThenOk() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void whenAnonymousScrapesApplicationPortThenForbidden() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser
+    void whenUserScrapesApplicationPortThenForbidden() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void whenAdminScrapesApplicationPortThenOk() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void whenAnonymousScrapesManagementPortThenOk() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(localPort(8081)))
+                .andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor localPort(int port) {
+        return request -> {
+            request.setLocalPort(port);
+            return request;
+        };
+    }
+
+    @RestController
+    static class Actuator {
+
+        @GetMapping({"/actuator/health", "/actuator/prometheus"})
+        String ok() {
+            return "ok";
+        }
+    }
+}
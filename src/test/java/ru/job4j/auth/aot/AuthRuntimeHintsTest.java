@@ -0,0 +1,43 @@
+package ru.job4j.auth.aot;
+
+import com.auth0.jwt.impl.PayloadClaimsHolder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import ru.job4j.auth.dto.PersonDto;
+import ru.job4j.auth.dto.TokenDto;
+import ru.job4j.auth.model.Person;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void setUp() {
+        new AuthRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void whenRegisteredThenLombokAccessorsAreInvokable() throws Exception {
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Person.class.getMethod("getLogin"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Person.class.getMethod("setLogin", String.class)))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(PersonDto.class.getMethod("getPassword")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(TokenDto.class.getConstructor()))
+                .accepts(hints);
+    }
+
+    @Test
+    void whenRegisteredThenJwtClaimHoldersAndCacheProviderAreReachable() throws Exception {
+        assertThat(RuntimeHintsPredicates.reflection().onType(PayloadClaimsHolder.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(
+                Class.forName("com.auth0.jwt.impl.PayloadImpl"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection()
+                .onConstructor(EhcacheCachingProvider.class.getConstructor())).accepts(hints);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.job4j.auth.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.MutableClock;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpiringCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+
+    @Test
+    void whenBeforeExpiryThenHit() {
+        cache.put("ivan", "token", clock.millis() + 1000);
+        assertThat(cache.get("ivan")).isEqualTo("token");
+        assertThat(cache.get("petr")).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void whenExpiredThenMissAndDropped() {
+        cache.put("ivan", "token", clock.millis() + 1000);
+        clock.advance(Duration.ofMillis(999));
+        assertThat(cache.get("ivan")).isEqualTo("token");
+        clock.advance(Duration.ofMillis(1));
+        assertThat(cache.get("ivan")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void whenAlreadyExpiredThenNotStored() {
+        cache.put("ivan", "token", clock.millis());
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenFullThenExpiredEntriesGoFirst() {
+        for (int i = 0; i < 5; i++) {
+            cache.put("short" + i, "token", clock.millis() + 1000);
+        }
+        for (int i = 0; i < 5; i++) {
+            cache.put("long" + i, "token", clock.millis() + 60_000);
+        }
+        clock.advance(Duration.ofSeconds(2));
+        cache.put("new", "token", clock.millis() + 60_000);
+
+        assertThat(cache.size()).isEqualTo(6);
+        assertThat(cache.evictions()).isEqualTo(5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("long" + i)).isEqualTo("token");
+        }
+        assertThat(cache.get("new")).isEqualTo("token");
+    }
+
+    @Test
+    void whenFullOfLiveEntriesThenATenthIsEvicted() {
+        for (int i = 0; i < 10; i++) {
+            cache.put("user" + i, "token", clock.millis() + 60_000);
+        }
+        cache.put("user0", "replaced", clock.millis() + 60_000);
+        assertThat(cache.size()).isEqualTo(10);
+
+        cache.put("new", "token", clock.millis() + 60_000);
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(cache.evictions()).isEqualTo(1);
+        assertThat(cache.get("new")).isEqualTo("token");
+    }
+
+    @Test
+    void whenRemovedOrClearedThenGone() {
+        cache.put("ivan", "token", clock.millis() + 1000);
+        cache.put("petr", "token", clock.millis() + 1000);
+        cache.remove("ivan");
+        assertThat(cache.get("ivan")).isNull();
+        cache.clear();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenSizeNotPositiveThenRejected() {
+        assertThatThrownBy(() -> new ExpiringCache<>(0, clock)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.job4j.auth.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import ru.job4j.auth.MutableClock;
+import ru.job4j.auth.event.UserChangedEvent;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginCacheTest {
+
+    private static final List<SimpleGrantedAuthority> USER = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private final MutableClock clock = new MutableClock();
+    private final LoginCache cache = new LoginCache(true, Duration.ofSeconds(30), 10, clock);
+
+    @Test
+    void whenSameCredentialsWithinTtlThenAuthorities() {
+        cache.put("ivan", "secret", USER, cache.generation("ivan"));
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(cache.authorities("ivan", "secret")).isEqualTo(USER);
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(cache.authorities("ivan", "secret")).isNull();
+    }
+
+    @Test
+    void whenOtherPasswordThenMiss() {
+        cache.put("ivan", "secret", USER, cache.generation("ivan"));
+        assertThat(cache.authorities("ivan", "secret1")).isNull();
+        assertThat(cache.authorities("petr", "secret")).isNull();
+        assertThat(cache.authorities("ivan", null)).isNull();
+    }
+
+    @Test
+    void whenUserChangedThenForgotten() {
+        cache.put("ivan", "secret", USER, cache.generation("ivan"));
+        cache.put("petr", "secret", USER, cache.generation("petr"));
+        cache.onUserChanged(UserChangedEvent.of(1, "ivan"));
+        assertThat(cache.authorities("ivan", "secret")).isNull();
+        assertThat(cache.authorities("petr", "secret")).isEqualTo(USER);
+        cache.onUserChanged(UserChangedEvent.anyUser());
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenUserChangedWhileCheckingThenResultNotKept() {
+        long generation = cache.generation("ivan");
+        cache.onUserChanged(UserChangedEvent.of(1, "ivan"));
+        cache.put("ivan", "old-secret", USER, generation);
+        assertThat(cache.authorities("ivan", "old-secret")).isNull();
+
+        long beforeClear = cache.generation("petr");
+        cache.onUserChanged(UserChangedEvent.anyUser());
+        cache.put("petr", "old-secret", USER, beforeClear);
+        assertThat(cache.size()).isZero();
+
+        cache.put("ivan", "secret", USER, cache.generation("ivan"));
+        assertThat(cache.authorities("ivan", "secret")).isEqualTo(USER);
+    }
+
+    @Test
+    void whenFullThenStaysWithinMaxSize() {
+        for (int i = 0; i < 25; i++) {
+            cache.put("user" + i, "secret", USER, cache.generation("user" + i));
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.authorities("user24", "secret")).isEqualTo(USER);
+    }
+
+    @Test
+    void whenDisabledThenNothingIsKept() {
+        var disabled = new LoginCache(false, Duration.ofSeconds(30), 10, clock);
+        disabled.put("ivan", "secret", USER, disabled.generation("ivan"));
+        assertThat(disabled.size()).isZero();
+        assertThat(disabled.authorities("ivan", "secret")).isNull();
+    }
+}
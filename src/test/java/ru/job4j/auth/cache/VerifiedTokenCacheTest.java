@@ -0,0 +1,36 @@
+package ru.job4j.auth.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.MutableClock;
+import ru.job4j.auth.jwt.AccessTokenAuthentication;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(10, clock);
+
+    @Test
+    void whenSameTokenThenVerifiedUntilExpiry() {
+        var verified = new VerifiedTokenCache.Verified(clock.millis(),
+                new AccessTokenAuthentication("ivan", List.of()));
+        cache.put("header.payload.signature", verified, clock.millis() + 60_000);
+
+        assertThat(cache.get("header.payload.signature")).isSameAs(verified);
+        assertThat(cache.get("header.payload.signature").subject()).isEqualTo("ivan");
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(cache.get("header.payload.signature")).isNull();
+    }
+
+    @Test
+    void whenOtherTokenThenMiss() {
+        cache.put("header.payload.signature", new VerifiedTokenCache.Verified(0,
+                new AccessTokenAuthentication("ivan", List.of())), clock.millis() + 60_000);
+        assertThat(cache.get("header.payload.signaturf")).isNull();
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+}
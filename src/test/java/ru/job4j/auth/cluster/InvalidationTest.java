@@ -0,0 +1,56 @@
+package ru.job4j.auth.cluster;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.event.UserChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvalidationTest {
+
+    @Test
+    void whenPayloadParsedThenChangesComeBackAsRemote() {
+        var payloads = Invalidation.payloads("node-a", List.of(
+                UserChangedEvent.of(7, "admin"), new UserChangedEvent("user:with:colons")));
+
+        assertThat(payloads).hasSize(1);
+        var invalidation = Invalidation.parse(payloads.get(0));
+        assertThat(invalidation.node()).isEqualTo("node-a");
+        assertThat(invalidation.changes()).containsExactly(
+                new UserChangedEvent("admin", 7, true),
+                new UserChangedEvent("user:with:colons", null, true));
+    }
+
+    @Test
+    void whenLoginCannotBeEncodedThenEveryUserIsInvalidated() {
+        var payload = Invalidation.payloads("node-a", List.of(UserChangedEvent.of(1, "two\nlines"))).get(0);
+
+        assertThat(Invalidation.parse(payload).changes()).singleElement()
+                .satisfies(change -> assertThat(change.isAnyUser()).isTrue());
+    }
+
+    @Test
+    void whenPayloadIsGarbageThenEveryUserIsInvalidated() {
+        assertThat(Invalidation.parse("node-b\nx1:admin\nnonsense").changes())
+                .allSatisfy(change -> assertThat(change.isAnyUser()).isTrue());
+    }
+
+    @Test
+    void whenBatchExceedsPayloadLimitThenItIsSplit() {
+        var changes = IntStream.range(0, 2_000).mapToObj(i -> UserChangedEvent.of(i, "user" + i)).toList();
+
+        var payloads = Invalidation.payloads("node-a", changes);
+
+        assertThat(payloads).hasSizeGreaterThan(1).allSatisfy(payload ->
+                assertThat(payload.getBytes(StandardCharsets.UTF_8).length)
+                        .isLessThanOrEqualTo(Invalidation.MAX_PAYLOAD_BYTES));
+        var parsed = new ArrayList<UserChangedEvent>();
+        payloads.forEach(payload -> parsed.addAll(Invalidation.parse(payload).changes()));
+        assertThat(parsed).hasSize(changes.size());
+        assertThat(parsed.get(1_999)).isEqualTo(new UserChangedEvent("user1999", 1999, true));
+    }
+}
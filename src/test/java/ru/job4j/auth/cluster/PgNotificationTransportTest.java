@@ -0,0 +1,139 @@
+package ru.job4j.auth.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs against an embedded PostgreSQL server started from the binaries on the test classpath.
+ */
+@Tag("postgres")
+class PgNotificationTransportTest {
+
+    private static final Duration POLL = Duration.ofMillis(100);
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void whenPayloadsSentThenEverySubscriberReceivesAll() throws Exception {
+        var transport = new PgNotificationTransport(dataSource, "auth_test_fanout");
+        try (var first = transport.subscribe(); var second = transport.subscribe()) {
+            transport.send(List.of("one", "two"));
+
+            assertThat(receive(first, 2)).containsExactly("one", "two");
+            assertThat(receive(second, 2)).containsExactly("one", "two");
+            assertThat(first.poll(POLL)).isEmpty();
+        }
+    }
+
+    @Test
+    void whenListeningConnectionTerminatedThenPollFails() throws Exception {
+        var transport = new PgNotificationTransport(dataSource, "auth_test_terminated");
+        try (var subscription = transport.subscribe();
+             var connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute("select pg_terminate_backend(pid) from pg_stat_activity "
+                    + "where query = 'listen auth_test_terminated'");
+
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 50; i++) {
+                    subscription.poll(POLL);
+                }
+            }).isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    void whenListenDataSourceGivenThenOnlySubscriptionsUseIt() throws Exception {
+        var listenConnections = new AtomicInteger();
+        var listenDataSource = new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                listenConnections.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        var transport = new PgNotificationTransport(dataSource, listenDataSource, "auth_test_listen");
+        try (var subscription = transport.subscribe()) {
+            transport.send(List.of("one"));
+
+            assertThat(receive(subscription, 1)).containsExactly("one");
+            assertThat(listenConnections).hasValue(1);
+        }
+    }
+
+    @Test
+    void whenChannelNameIsNotAnIdentifierThenRejected() {
+        assertThatThrownBy(() -> new PgNotificationTransport(dataSource, "x; drop table person"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void whenPersonChangedOnOneNodeThenTheOtherNodeRelaysIt() {
+        var transport = new PgNotificationTransport(dataSource, "auth_test_bus");
+        var publishedOnA = new CopyOnWriteArrayList<>();
+        var publishedOnB = new CopyOnWriteArrayList<>();
+        var nodeA = bus(transport, publishedOnA);
+        var nodeB = bus(transport, publishedOnB);
+        nodeA.start();
+        nodeB.start();
+        try {
+            var anyUser = new UserChangedEvent(null, null, true);
+            await().until(() -> publishedOnA.contains(anyUser) && publishedOnB.contains(anyUser));
+
+            nodeA.onUserChanged(UserChangedEvent.of(1, "admin"));
+
+            await().until(() -> publishedOnB.contains(new UserChangedEvent("admin", 1, true)));
+            assertThat(publishedOnA).containsExactly(anyUser);
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    private static UserInvalidationBus bus(NotificationTransport transport, List<Object> published) {
+        return new UserInvalidationBus(transport, published::add, 256, POLL, Duration.ofSeconds(1),
+                new AuthMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static List<String> receive(NotificationTransport.Subscription subscription, int count)
+            throws SQLException {
+        var received = new ArrayList<String>();
+        for (int i = 0; i < 50 && received.size() < count; i++) {
+            received.addAll(subscription.poll(POLL));
+        }
+        return received;
+    }
+}
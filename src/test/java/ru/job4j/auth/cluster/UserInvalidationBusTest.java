@@ -0,0 +1,178 @@
+package ru.job4j.auth.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class UserInvalidationBusTest {
+
+    private static final UserChangedEvent REMOTE_ANY_USER = new UserChangedEvent(null, null, true);
+
+    private final InMemoryTransport transport = new InMemoryTransport();
+    private final List<Object> publishedOnA = new CopyOnWriteArrayList<>();
+    private final List<Object> publishedOnB = new CopyOnWriteArrayList<>();
+    private UserInvalidationBus nodeA;
+    private UserInvalidationBus nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = bus(publishedOnA);
+        nodeB = bus(publishedOnB);
+        nodeA.start();
+        nodeB.start();
+        await().until(() -> publishedOnA.contains(REMOTE_ANY_USER) && publishedOnB.contains(REMOTE_ANY_USER));
+        publishedOnA.clear();
+        publishedOnB.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void whenUserChangedOnOneNodeThenOnlyTheOtherNodeRelaysIt() {
+        nodeA.onUserChanged(UserChangedEvent.of(1, "admin"));
+
+        await().until(() -> publishedOnB.contains(new UserChangedEvent("admin", 1, true)));
+        assertThat(publishedOnA).isEmpty();
+    }
+
+    @Test
+    void whenRemoteEventPublishedLocallyThenItIsNotSentAgain() throws Exception {
+        nodeB.onUserChanged(new UserChangedEvent("admin", 1, true));
+        nodeB.onUserChanged(UserChangedEvent.of(2, "root"));
+
+        await().until(() -> publishedOnA.contains(new UserChangedEvent("root", 2, true)));
+        assertThat(transport.sent).hasSize(1);
+        assertThat(Invalidation.parse(transport.sent.get(0)).changes()).hasSize(1);
+    }
+
+    @Test
+    void whenBurstExceedsMaxBatchThenOneEveryUserEventIsRelayed() throws Exception {
+        var burst = new ArrayList<UserChangedEvent>();
+        for (int i = 0; i < 5; i++) {
+            burst.add(UserChangedEvent.of(i, "user" + i));
+        }
+        transport.send(Invalidation.payloads("another-node", burst));
+
+        await().until(() -> publishedOnB.contains(REMOTE_ANY_USER));
+        assertThat(publishedOnB).containsExactly(REMOTE_ANY_USER);
+    }
+
+    @Test
+    void whenSendFailsThenItIsRetried() {
+        transport.failingSends.set(2);
+
+        nodeA.onUserChanged(UserChangedEvent.of(3, "ivan"));
+
+        await().until(() -> publishedOnB.contains(new UserChangedEvent("ivan", 3, true)));
+        assertThat(transport.failingSends.get()).isNegative();
+    }
+
+    @Test
+    void whenSubscriptionLostThenNodeResubscribesAndDropsEverything() {
+        transport.failingSubscribes.set(1);
+        transport.dropSubscriptions();
+
+        await().until(() -> publishedOnB.contains(REMOTE_ANY_USER) && transport.subscribers.size() == 2);
+        nodeA.onUserChanged(UserChangedEvent.of(4, "ban"));
+        await().until(() -> publishedOnB.contains(new UserChangedEvent("ban", 4, true)));
+    }
+
+    private UserInvalidationBus bus(List<Object> published) {
+        return new UserInvalidationBus(transport, published::add, 3, Duration.ofMillis(20),
+                Duration.ofMillis(200), new AuthMetrics(new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Stands in for PostgreSQL: every payload goes to every live subscription, and sends,
+     * subscriptions and live connections can be made to fail.
+     */
+    private static final class InMemoryTransport implements NotificationTransport {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final List<InMemorySubscription> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failingSends = new AtomicInteger();
+        private final AtomicInteger failingSubscribes = new AtomicInteger();
+
+        @Override
+        public void send(List<String> payloads) throws SQLException {
+            if (failingSends.getAndDecrement() > 0) {
+                throw new SQLRecoverableException("Connection refused");
+            }
+            sent.addAll(payloads);
+            for (InMemorySubscription subscriber : subscribers) {
+                subscriber.queue.addAll(payloads);
+            }
+        }
+
+        @Override
+        public Subscription subscribe() throws SQLException {
+            if (failingSubscribes.getAndDecrement() > 0) {
+                throw new SQLRecoverableException("Connection refused");
+            }
+            var subscription = new InMemorySubscription(this);
+            subscribers.add(subscription);
+            return subscription;
+        }
+
+        void dropSubscriptions() {
+            subscribers.forEach(subscriber -> subscriber.broken = true);
+        }
+    }
+
+    private static final class InMemorySubscription implements NotificationTransport.Subscription {
+
+        private final InMemoryTransport transport;
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        private volatile boolean broken;
+
+        private InMemorySubscription(InMemoryTransport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public List<String> poll(Duration timeout) throws SQLException {
+            if (broken) {
+                throw new SQLRecoverableException("Connection reset");
+            }
+            try {
+                String first = queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return List.of();
+                }
+                var payloads = new ArrayList<String>();
+                payloads.add(first);
+                queue.drainTo(payloads);
+                return payloads;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLRecoverableException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            transport.subscribers.remove(this);
+        }
+    }
+}
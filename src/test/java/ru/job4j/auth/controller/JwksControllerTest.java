@@ -0,0 +1,87 @@
+package ru.job4j.auth.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.jwt.KeyDirectory;
+import ru.job4j.auth.jwt.PemKeys;
+import ru.job4j.auth.jwt.SigningKey;
+import ru.job4j.auth.jwt.SigningKeys;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(JwksController.class)
+@Import({WebSecurity.class, JwksControllerTest.RsaKeys.class})
+class JwksControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SigningKeys keys;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    @Test
+    void whenGetJwksWithoutTokenThenPublicKeysAreReturned() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", keys.jwks().etag()))
+                .andExpect(header().string("Cache-Control", "max-age=3600, public"))
+                .andExpect(jsonPath("$.keys[*].kid", hasItem(keys.current().kid())))
+                .andExpect(jsonPath("$.keys[0].kty").value("RSA"))
+                .andExpect(jsonPath("$.keys[0].d").doesNotExist());
+    }
+
+    @Test
+    void whenEtagMatchesThenNotModified() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json").header("If-None-Match", keys.jwks().etag()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenKeyAddedThenRetiredKeyIsStillPublishedAndEtagChanges() throws Exception {
+        String retired = keys.current().kid();
+        String etag = keys.jwks().etag();
+        PemKeys.write(RsaKeys.directory, "key-" + System.nanoTime(), SigningKey.RS256);
+        keys.reload();
+
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.keys[*].kid", hasItem(retired)))
+                .andExpect(jsonPath("$.keys[*].kid", hasItem(keys.current().kid())));
+    }
+
+    @TestConfiguration
+    static class RsaKeys {
+
+        private static Path directory;
+
+        @Bean
+        @Primary
+        SigningKeys rsaSigningKeys() throws IOException {
+            directory = Files.createTempDirectory("jwks");
+            PemKeys.write(directory, "key-0", SigningKey.RS256);
+            return new SigningKeys(new KeyDirectory(directory, SigningKey.RS256));
+        }
+    }
+}
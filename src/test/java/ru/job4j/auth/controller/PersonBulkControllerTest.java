@@ -0,0 +1,154 @@
+package ru.job4j.auth.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.dto.BulkImportResult;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonCursor;
+import ru.job4j.auth.service.PersonBulkService;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PersonBulkController.class)
+@Import(WebSecurity.class)
+class PersonBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PersonBulkService bulk;
+
+    @MockitoBean
+    private PersonCursor cursor;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    private final List<Person> received = new ArrayList<>();
+
+    @Test
+    @WithMockUser
+    void whenImportNdjsonThenEveryRowReachesService() throws Exception {
+        drainRows();
+
+        mockMvc.perform(post("/person/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"login":"admin","password":"password"}
+                                {"login":"user","password":"secret1"}
+                                """))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(0));
+        assertThat(received).extracting(Person::getLogin).containsExactly("admin", "user");
+    }
+
+    @Test
+    @WithMockUser
+    void whenImportJsonArrayThenEveryRowReachesService() throws Exception {
+        drainRows();
+
+        mockMvc.perform(post("/person/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"login\":\"admin\",\"password\":\"password\"},"
+                                + "{\"login\":\"user\",\"password\":\"secret1\"}]"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+        assertThat(received).extracting(Person::getLogin).containsExactly("admin", "user");
+    }
+
+    @Test
+    @WithMockUser
+    void whenImportCsvThenColumnsAreMappedByHeader() throws Exception {
+        drainRows();
+
+        mockMvc.perform(post("/person/bulk")
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .content("""
+                                password,login
+                                password,admin
+                                secret1,user
+                                """))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+        assertThat(received).extracting(Person::getPassword).containsExactly("password", "secret1");
+    }
+
+    @Test
+    @WithMockUser
+    void whenUserAsksToKeepHashesThenForbidden() throws Exception {
+        mockMvc.perform(post("/person/bulk").param("keepHashes", "true")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"login\":\"admin\",\"password\":\"password\"}"))
+                .andDo(print())
+                .andExpect(status().isForbidden());
+        verify(bulk, never()).importAll(any(), anyBoolean());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void whenAdminAsksToKeepHashesThenPassedOn() throws Exception {
+        drainRows();
+
+        mockMvc.perform(post("/person/bulk").param("keepHashes", "true")
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .content("""
+                                login,password
+                                admin,password
+                                """))
+                .andExpect(status().isOk());
+        verify(bulk).importAll(any(), eq(true));
+    }
+
+    @Test
+    @WithMockUser
+    void whenNotAskedThenHashesAreNotKept() throws Exception {
+        drainRows();
+
+        mockMvc.perform(post("/person/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"login\":\"admin\",\"password\":\"password\"}"))
+                .andExpect(status().isOk());
+        verify(bulk).importAll(any(), eq(false));
+    }
+
+    private void drainRows() {
+        when(bulk.importAll(any(), anyBoolean())).thenAnswer(invocation -> {
+            Iterator<Person> rows = invocation.getArgument(0);
+            rows.forEachRemaining(received::add);
+            var result = new BulkImportResult();
+            result.setImported(received.size());
+            return result;
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package ru.job4j.auth.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonCursor;
+import ru.job4j.auth.repository.person.PersonRepository;
+
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({SecondLevelCacheConfig.class, PersonController.class, PersonCursor.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PersonControllerStatementsTest {
+
+    @Autowired
+    private PersonController controller;
+
+    @Autowired
+    private PersonRepository persons;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private ObjectMapper objectMapper;
+
+    @MockitoBean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor writes;
+
+    private Statistics statistics;
+    private int id;
+
+    @BeforeEach
+    void setUp() {
+        var sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        id = persons.save(new Person(null, "admin", "hash")).getId();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from person");
+    }
+
+    @Test
+    void whenDeleteCachedPersonThenOnlyTheDelete() {
+        persons.findById(id);
+        statistics.clear();
+
+        controller.delete(id);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(persons.existsById(id)).isFalse();
+    }
+
+    @Test
+    void whenDeleteUncachedPersonThenSelectOfLoginAndDelete() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        controller.delete(id);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(persons.existsById(id)).isFalse();
+    }
+}
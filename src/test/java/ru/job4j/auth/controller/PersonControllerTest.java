@@ -1,24 +1,48 @@
 package ru.job4j.auth.controller;
 
+import com.auth0.jwt.JWT;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.jwt.AccessTokens;
+import ru.job4j.auth.jwt.RoleAuthorities;
+import ru.job4j.auth.jwt.SigningKeys;
+import ru.job4j.auth.model.Role;
 import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.MemoryUserRepository;
+import ru.job4j.auth.repository.person.PersonCursor;
 import ru.job4j.auth.repository.person.PersonRepository;
+import ru.job4j.auth.repository.person.PersonsVersion;
+import ru.job4j.auth.service.AdminProvisioner;
+import ru.job4j.auth.service.RefreshTokenService;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -38,7 +62,72 @@ class PersonControllerTest {
     private PersonRepository persons;
 
     @MockitoBean
-    private BCryptPasswordEncoder encoder;
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private PersonCursor cursor;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    @Autowired
+    private AccessTokens accessTokens;
+
+    @Autowired
+    private SigningKeys signingKeys;
+
+    @Test
+    @WithMockUser
+    void whenFindPageThenReturnRowsAndNextCursor() throws Exception {
+        when(persons.findByIdGreaterThanOrderByIdAsc(eq(10), any(Limit.class))).thenReturn(List.of(
+                new Person(11, "admin", "password"),
+                new Person(12, "user", "password")
+        ));
+
+        mockMvc.perform(get("/person/").param("after", "10").param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(12))
+                .andExpect(header().string("X-Next-Cursor", "12"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenLastPageThenNoNextCursor() throws Exception {
+        when(persons.findByIdGreaterThanOrderByIdAsc(eq(11), any(Limit.class))).thenReturn(List.of(
+                new Person(12, "user", "password")
+        ));
+
+        mockMvc.perform(get("/person/").param("after", "11").param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @WithMockUser
+    void whenStreamAsNdjsonThenOneJsonDocumentPerLine() throws Exception {
+        when(cursor.forEach(any())).thenAnswer(invocation -> {
+            Consumer<Person> action = invocation.getArgument(0);
+            action.accept(new Person(1, "admin", "password"));
+            action.accept(new Person(2, "user", "password"));
+            return 2L;
+        });
+
+        var result = mockMvc.perform(get("/person/").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"login\":\"admin\",\"password\":\"password\"}\n"
+                                + "{\"id\":2,\"login\":\"user\",\"password\":\"password\"}\n"));
+    }
 
     @Test
     @WithMockUser
@@ -73,11 +162,16 @@ class PersonControllerTest {
         person.setPassword("password");
         var savedPerson = new Person(1, "admin", "password");
 
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
         when(persons.save(any(Person.class))).thenReturn(savedPerson);
 
-        mockMvc.perform(post("/person/")
+        var result = mockMvc.perform(post("/person/")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(person)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andDo(print())
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id").value(1))
@@ -85,6 +179,24 @@ class PersonControllerTest {
                 .andExpect(jsonPath("$.password").value("password"));
     }
 
+    @Test
+    @WithMockUser
+    void whenCreateWithIdOfExistingPersonThenInsertedWithoutIt() throws Exception {
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.save(any(Person.class))).thenReturn(new Person(2, "intruder", "encodedPassword"));
+
+        var result = mockMvc.perform(post("/person/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"login\":\"intruder\",\"password\":\"whatever\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(2));
+        verify(persons).save(argThat(p -> p.getId() == null && "intruder".equals(p.getLogin())));
+    }
+
     @Test
     @WithMockUser
     void whenCreatePersonWithoutPasswordThenReturnBadRequest() throws Exception {
@@ -121,14 +233,67 @@ class PersonControllerTest {
     @WithMockUser
     void whenUpdateValidPersonThenReturnOk() throws Exception {
         var person = new Person(1, "admin", "password");
-        when(persons.save(any(Person.class))).thenAnswer(
-                invocation -> invocation.getArgument(0));
+        when(persons.findById(1)).thenReturn(Optional.of(stored(1, "admin", "oldPassword", 0)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(1, 0, "admin", "encodedPassword")).thenReturn(1);
 
-        mockMvc.perform(put("/person/")
+        var result = mockMvc.perform(put("/person/")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(person)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andDo(print())
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        verify(persons, never()).save(any(Person.class));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdateMissingPersonThenNotFound() throws Exception {
+        when(persons.findById(9)).thenReturn(Optional.empty());
+
+        mockMvc.perform(put("/person/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Person(9, "admin", "password"))))
+                .andExpect(status().isNotFound());
+        verify(encoder, never()).encodeAsync(anyString());
+    }
+
+    @Test
+    @WithMockUser
+    void whenPersonDeletedWhileHashingThenNotFound() throws Exception {
+        when(persons.findById(9)).thenReturn(Optional.of(stored(9, "admin", "oldPassword", 2)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(9, 2, "admin", "encodedPassword")).thenReturn(0);
+        when(persons.existsById(9)).thenReturn(false);
+
+        var result = mockMvc.perform(put("/person/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Person(9, "admin", "password"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void whenPersonChangedWhileHashingThenConflict() throws Exception {
+        when(persons.findById(9)).thenReturn(Optional.of(stored(9, "admin", "oldPassword", 2)));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(persons.patch(9, 2, "admin", "encodedPassword")).thenReturn(0);
+        when(persons.existsById(9)).thenReturn(true);
+
+        var result = mockMvc.perform(put("/person/")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Person(9, "admin", "password"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isConflict());
     }
 
     @Test
@@ -181,4 +346,210 @@ class PersonControllerTest {
                 .andExpect(jsonPath("$[0].id")
                         .value(containsString("Id must be non null")));
     }
+
+    @Test
+    void whenPasswordPatchedThenAccessTokensIssuedBeforeAreRejected() throws Exception {
+        patchable("patched");
+        var token = token("patched", Instant.now().minus(Duration.ofMinutes(1)));
+        mockMvc.perform(get("/person/7").header("Authorization", token))
+                .andExpect(status().isOk());
+
+        patchPassword(token);
+
+        mockMvc.perform(get("/person/7").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void whenLoggedInRightAfterPasswordPatchThenNewTokenIsAccepted() throws Exception {
+        patchable("relogged");
+        patchPassword(token("relogged", Instant.now().minus(Duration.ofMinutes(1))));
+
+        var token = "Bearer " + accessTokens.issue("relogged", RoleAuthorities.of(Set.of(Role.USER)));
+
+        mockMvc.perform(get("/person/7").header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void whenTokenHasNoIssuedAtThenUnauthorized() throws Exception {
+        var key = signingKeys.current();
+        var token = JWT.create()
+                .withKeyId(key.kid())
+                .withSubject("admin")
+                .withExpiresAt(Instant.now().plus(Duration.ofMinutes(1)))
+                .sign(key.algorithm());
+
+        mockMvc.perform(get("/person/1").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String token(String login, Instant issuedAt) {
+        var key = signingKeys.current();
+        return "Bearer " + JWT.create()
+                .withKeyId(key.kid())
+                .withSubject(login)
+                .withIssuedAt(issuedAt)
+                .withClaim(AccessTokens.ISSUED_AT_MILLIS, issuedAt.toEpochMilli())
+                .withExpiresAt(issuedAt.plus(accessTokens.ttl()))
+                .sign(key.algorithm());
+    }
+
+    private void patchable(String login) {
+        when(persons.findById(7)).thenReturn(Optional.of(new Person(7, login, "password")));
+        when(persons.patch(7, 0, null, "encodedPassword")).thenReturn(1);
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+    }
+
+    private void patchPassword(String token) throws Exception {
+        var result = mockMvc.perform(patch("/person/7")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"password\":\"newPassword\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void whenTokenIsMalformedThenUnauthorized() throws Exception {
+        mockMvc.perform(get("/person/1").header("Authorization", "Bearer not.a.token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("WWW-Authenticate", "Bearer error=\"invalid_token\""));
+        verify(persons, never()).findById(anyInt());
+    }
+
+    @Test
+    void whenTokenIsExpiredThenUnauthorized() throws Exception {
+        var key = signingKeys.current();
+        var issuedAt = Instant.now().minus(Duration.ofHours(2));
+        var token = JWT.create()
+                .withKeyId(key.kid())
+                .withSubject("admin")
+                .withIssuedAt(issuedAt)
+                .withExpiresAt(issuedAt.plus(Duration.ofHours(1)))
+                .sign(key.algorithm());
+
+        mockMvc.perform(get("/person/1").header("Authorization", "bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser
+    void whenDeleteAsUserThenForbidden() throws Exception {
+        mockMvc.perform(delete("/person/1"))
+                .andExpect(status().isForbidden());
+        verify(persons, never()).removeById(anyInt());
+    }
+
+    @Test
+    void whenProvisionedAdminDeletesThenOk() throws Exception {
+        var users = new MemoryUserRepository();
+        users.save(new Person(null, "root", "hash"));
+        new AdminProvisioner(users, event -> { }, List.of("root")).grant();
+        var roles = RoleAuthorities.of(users.findByUsername("root").getRoles());
+        var token = "Bearer " + accessTokens.issue("root", roles);
+        when(persons.findById(1)).thenReturn(Optional.of(stored(1, "admin", "password", 0)));
+        when(persons.removeById(1)).thenReturn(1);
+
+        mockMvc.perform(delete("/person/1").header("Authorization", token))
+                .andExpect(status().isOk());
+        verify(persons).removeById(1);
+    }
+
+    @Test
+    void whenDeleteWithAdminTokenThenOkWithoutUserLookupOnRequestPath() throws Exception {
+        var token = "Bearer " + accessTokens.issue("root", RoleAuthorities.of(Set.of(Role.USER, Role.ADMIN)));
+        when(persons.findById(1)).thenReturn(Optional.of(stored(1, "admin", "password", 0)));
+        when(persons.removeById(1)).thenReturn(1);
+
+        mockMvc.perform(delete("/person/1").header("Authorization", token))
+                .andExpect(status().isOk());
+        verify(persons).removeById(1);
+        verify(persons, never()).findByLogin(anyString());
+    }
+
+    @Test
+    void whenDeleteMissingPersonThenNotFound() throws Exception {
+        var token = "Bearer " + accessTokens.issue("root", RoleAuthorities.of(Set.of(Role.USER, Role.ADMIN)));
+        when(persons.removeById(5)).thenReturn(0);
+
+        mockMvc.perform(delete("/person/5").header("Authorization", token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void whenFindByIdWithCurrentETagThenNotModified() throws Exception {
+        var person = new Person(1, "admin", "password");
+        person.setVersion(3);
+        when(persons.findById(1)).thenReturn(Optional.of(person));
+
+        mockMvc.perform(get("/person/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mockMvc.perform(get("/person/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser
+    void whenListUnchangedThenNotModifiedAndChangedThenNewETag() throws Exception {
+        var unchanged = List.of(stored(1, "admin", "password", 5));
+        var etag = PersonsVersion.of(unchanged).etag();
+        when(persons.findAll()).thenReturn(unchanged);
+
+        mockMvc.perform(get("/person/"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/person/").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        when(persons.findAll()).thenReturn(List.of(stored(1, "admin", "password", 6)));
+        mockMvc.perform(get("/person/").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @WithMockUser
+    void whenUpdateWithStaleIfMatchThenPreconditionFailed() throws Exception {
+        when(persons.findById(1)).thenReturn(Optional.of(stored(1, "admin", "oldPassword", 4)));
+
+        mockMvc.perform(put("/person/")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Person(1, "admin", "password"))))
+                .andExpect(status().isPreconditionFailed());
+        verify(encoder, never()).encodeAsync(anyString());
+        verify(persons, never()).patch(anyInt(), anyLong(), any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void whenPatchWithMatchingIfMatchThenNewETagIsReturned() throws Exception {
+        when(persons.findById(1)).thenReturn(Optional.of(stored(1, "admin", "password", 4)));
+        when(persons.patch(1, 4, "root", null)).thenReturn(1);
+
+        var result = mockMvc.perform(patch("/person/1")
+                        .header("If-Match", "W/\"1\", \"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"root\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""))
+                .andExpect(jsonPath("$.login").value("root"))
+                .andExpect(jsonPath("$.password").value("password"));
+    }
+
+    private static Person stored(int id, String login, String password, long version) {
+        var person = new Person(id, login, password);
+        person.setVersion(version);
+        return person;
+    }
 }
@@ -0,0 +1,68 @@
+package ru.job4j.auth.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.UserRepository;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(TokenController.class)
+@Import(WebSecurity.class)
+class TokenControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    @MockitoBean
+    private UserRepository users;
+
+    @Test
+    void whenRefreshTokenIsValidThenNewPairIsReturned() throws Exception {
+        when(refreshTokens.rotate("old")).thenReturn(Optional.of(new RefreshTokenService.Rotation("admin", "new")));
+        when(users.findByUsername("admin")).thenReturn(new Person(1, "admin", "password"));
+
+        mockMvc.perform(post("/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"old\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", startsWith("Bearer ")))
+                .andExpect(jsonPath("$.refreshToken").value("new"))
+                .andExpect(jsonPath("$.expiresIn").value(900));
+    }
+
+    @Test
+    void whenRefreshTokenIsUnknownOrReusedThenUnauthorized() throws Exception {
+        when(refreshTokens.rotate("reused")).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"reused\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void whenRefreshTokenIsMissingThenBadRequest() throws Exception {
+        mockMvc.perform(post("/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -6,19 +6,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.crypto.PasswordEncoderSaturatedException;
 import ru.job4j.auth.model.Person;
 import ru.job4j.auth.repository.person.MemoryUserRepository;
+import ru.job4j.auth.repository.person.UserRepository;
+import ru.job4j.auth.service.RefreshTokenService;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -32,10 +44,13 @@ class UserControllerTest {
     private ObjectMapper objectMapper;
 
     @MockitoBean
-    private MemoryUserRepository users;
+    private UserRepository users;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
 
     @MockitoBean
-    private BCryptPasswordEncoder encoder;
+    private RefreshTokenService refreshTokens;
 
     @Test
     void whenSignUpWithValidDataThenReturnOk() throws Exception {
@@ -43,14 +58,117 @@ class UserControllerTest {
         person.setLogin("admin");
         person.setPassword("password");
 
-        when(encoder.encode(anyString())).thenReturn("encodedPassword");
-        doNothing().when(users).save(any(Person.class));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        doNothing().when(users).create(any(Person.class));
 
-        mockMvc.perform(post("/users/sign-up")
+        var result = mockMvc.perform(post("/users/sign-up")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(person)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andDo(print())
                 .andExpect(status().isOk());
+        verify(users).create(argThat(p -> "encodedPassword".equals(p.getPassword())));
+    }
+
+    @Test
+    void whenSignUpWithIdOfExistingAccountThenNewAccountAndVictimIntact() throws Exception {
+        var memory = new MemoryUserRepository();
+        memory.save(new Person(null, "victim", "victimHash"));
+        doAnswer(invocation -> {
+            memory.create(invocation.getArgument(0));
+            return null;
+        }).when(users).create(any(Person.class));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+
+        var result = mockMvc.perform(post("/users/sign-up")
+                        .with(req -> {
+                            req.setRemoteAddr("10.0.0.4");
+                            return req;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"login\":\"intruder\",\"password\":\"whatever\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        assertThat(memory.findPage(0, 10))
+                .extracting(Person::getId, Person::getLogin, Person::getPassword)
+                .containsExactly(tuple(1, "victim", "victimHash"), tuple(2, "intruder", "encodedPassword"));
+    }
+
+    @Test
+    void whenSignUpUnderTakenLoginThenConflictAndAccountIntact() throws Exception {
+        var memory = new MemoryUserRepository();
+        memory.save(new Person(null, "victim", "victimHash"));
+        doAnswer(invocation -> {
+            memory.create(invocation.getArgument(0));
+            return null;
+        }).when(users).create(any(Person.class));
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+
+        var result = mockMvc.perform(post("/users/sign-up")
+                        .with(req -> {
+                            req.setRemoteAddr("10.0.0.5");
+                            return req;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"victim\",\"password\":\"whatever\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isConflict());
+
+        assertThat(memory.findAll())
+                .extracting(Person::getId, Person::getLogin, Person::getPassword)
+                .containsExactly(tuple(1, "victim", "victimHash"));
+    }
+
+    @Test
+    void whenSignUpThenSavedOffTheHashingThread() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+        person.setPassword("password");
+        var hashed = new CompletableFuture<String>();
+        when(encoder.encodeAsync(anyString())).thenReturn(hashed);
+        var savedOn = new AtomicReference<String>();
+        doAnswer(invocation -> {
+            savedOn.set(Thread.currentThread().getName());
+            return null;
+        }).when(users).create(any(Person.class));
+
+        var result = mockMvc.perform(post("/users/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(person)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var bcrypt = new Thread(() -> hashed.complete("encodedPassword"), "bcrypt-0");
+        bcrypt.start();
+        bcrypt.join();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertThat(savedOn.get()).isNotNull().doesNotStartWith("bcrypt-");
+    }
+
+    @Test
+    void whenSignUpWhileHashingPoolSaturatedThenReturnServiceUnavailable() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+        person.setPassword("password");
+
+        when(encoder.encodeAsync(anyString())).thenThrow(new PasswordEncoderSaturatedException(3));
+
+        mockMvc.perform(post("/users/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(person)))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+        verify(users, never()).create(any(Person.class));
     }
 
     @Test
@@ -98,4 +216,34 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].password")
                         .value(containsString("Password length must be at least 6 characters")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenTooManySignUpsFromOneAddressThenReturnTooManyRequests() throws Exception {
+        var person = new Person();
+        person.setLogin("admin");
+        person.setPassword("password");
+        when(encoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/users/sign-up")
+                            .with(req -> {
+                                req.setRemoteAddr("10.0.0.9");
+                                return req;
+                            })
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(person)))
+                    .andExpect(request().asyncStarted());
+        }
+        mockMvc.perform(post("/users/sign-up")
+                        .with(req -> {
+                            req.setRemoteAddr("10.0.0.9");
+                            return req;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(person)))
+                .andDo(print())
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        verify(encoder, times(5)).encodeAsync(anyString());
+    }
+}
@@ -0,0 +1,76 @@
+package ru.job4j.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitedDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+
+    private ConcurrencyLimitedDataSource limited;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        limited = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    void whenConnectionClosedThenPermitReleasedOnce() throws SQLException {
+        Connection first = limited.getConnection();
+        assertThat(limited.available()).isZero();
+
+        first.close();
+        first.close();
+
+        assertThat(limited.available()).isEqualTo(1);
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    void whenNoPermitWithinTimeoutThenTransientFailureAndNoPermitLost() throws SQLException {
+        Connection held = limited.getConnection();
+
+        assertThatThrownBy(limited::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("50 ms");
+        assertThat(limited.available()).isZero();
+
+        held.close();
+        limited.getConnection().close();
+        assertThat(limited.available()).isEqualTo(1);
+    }
+
+    @Test
+    void whenTargetFailsThenPermitReleased() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("refused"));
+
+        assertThatThrownBy(limited::getConnection).hasMessage("refused");
+        assertThat(limited.available()).isEqualTo(1);
+    }
+
+    @Test
+    void whenUnwrappedToPoolThenRefused() throws SQLException {
+        when(target.isWrapperFor(any())).thenReturn(true);
+
+        assertThat(limited.isWrapperFor(HikariDataSource.class)).isFalse();
+        assertThatThrownBy(() -> limited.unwrap(HikariDataSource.class)).isInstanceOf(SQLException.class);
+        assertThat(limited.unwrap(DataSource.class)).isSameAs(limited);
+    }
+}
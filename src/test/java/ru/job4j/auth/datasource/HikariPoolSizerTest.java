@@ -0,0 +1,89 @@
+package ru.job4j.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HikariPoolSizerTest {
+
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("auth.db.pool.auto-size", "true")
+            .withProperty("auth.db.pool.database-cores", "4");
+
+    @Test
+    void whenRequestThreadsExceedWhatTheDatabaseCanRunThenPoolFollowsTheDatabase() {
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(9);
+        assertThat(sized().getMinimumIdle()).isEqualTo(9);
+    }
+
+    @Test
+    void whenFewerThreadsCanReachTheDatabaseThenPoolFollowsTheThreads() {
+        env.setProperty("auth.db.pool.database-cores", "16");
+        env.setProperty("server.tomcat.threads.max", "6");
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(6 + 8 + 1);
+
+        env.setProperty("auth.db.max-concurrency", "3");
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(3);
+    }
+
+    @Test
+    void whenTaskExecutorQueueBoundedThenItsMaximumThreadsAreCounted() {
+        env.setProperty("auth.db.pool.database-cores", "16");
+        env.setProperty("server.tomcat.threads.max", "6");
+        env.setProperty("spring.task.execution.pool.queue-capacity", "100");
+        env.setProperty("spring.task.execution.pool.max-size", "4");
+        env.setProperty("spring.task.scheduling.pool.size", "2");
+
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(6 + 4 + 2);
+    }
+
+    @Test
+    void whenDatabaseCoresMissingThenSizingFails() {
+        env.setProperty("auth.db.pool.database-cores", "0");
+
+        assertThatThrownBy(this::sized)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("auth.db.pool.database-cores");
+    }
+
+    @Test
+    void whenVirtualThreadsThenOnlyTheDatabaseBoundsThePool() {
+        env.setProperty("spring.threads.virtual.enabled", "true");
+        env.setProperty("auth.db.pool.effective-spindles", "2");
+
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(10);
+    }
+
+    @Test
+    void whenPoolSizeConfiguredThenPoolIsLeftAlone() {
+        env.setProperty(HikariPoolSizer.MAXIMUM_POOL_SIZE, "30");
+
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(new HikariDataSource().getMaximumPoolSize());
+    }
+
+    @Test
+    void whenAutoSizeOffThenPoolIsLeftAlone() {
+        env.setProperty("auth.db.pool.auto-size", "false");
+
+        assertThat(sized().getMaximumPoolSize()).isEqualTo(new HikariDataSource().getMaximumPoolSize());
+    }
+
+    @Test
+    void whenMinimumIdleConfiguredThenItIsKept() {
+        env.setProperty(HikariPoolSizer.MINIMUM_IDLE, "2");
+
+        assertThat(sized().getMinimumIdle()).isEqualTo(2);
+    }
+
+    /**
+     * A pool as bound from {@code spring.datasource.hikari.minimum-idle=2}.
+     */
+    private HikariDataSource sized() {
+        var pool = new HikariDataSource();
+        pool.setMinimumIdle(2);
+        return (HikariDataSource) new HikariPoolSizer(env).postProcessBeforeInitialization(pool, "dataSource");
+    }
+}
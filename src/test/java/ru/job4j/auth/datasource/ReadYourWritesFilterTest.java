@@ -0,0 +1,67 @@
+package ru.job4j.auth.datasource;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(5));
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(readYourWrites);
+
+    @Test
+    void whenWriteThenPinnedAndClientGetsCookie() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        assertThat(pinnedDuring(new MockHttpServletRequest("PATCH", "/person/1"), response)).isTrue();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNotNull();
+        assertThat(readYourWrites.primaryOnly()).isFalse();
+    }
+
+    @Test
+    void whenReadWithFreshCookieThenPinned() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/person/");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE,
+                Long.toString(System.currentTimeMillis() + 1000)));
+
+        assertThat(pinnedDuring(request, new MockHttpServletResponse())).isTrue();
+    }
+
+    @Test
+    void whenCookieExpiredOrBeyondWindowThenNotPinned() throws Exception {
+        var expired = new MockHttpServletRequest("GET", "/person/");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+        var forged = new MockHttpServletRequest("GET", "/person/");
+        forged.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(Long.MAX_VALUE)));
+
+        assertThat(pinnedDuring(expired, new MockHttpServletResponse())).isFalse();
+        assertThat(pinnedDuring(forged, new MockHttpServletResponse())).isFalse();
+    }
+
+    @Test
+    void whenReadByChangedUserThenPinnedAndOthersAreNot() throws Exception {
+        readYourWrites.pin("changed");
+        var changed = new MockHttpServletRequest("GET", "/person/");
+        changed.setUserPrincipal(new TestingAuthenticationToken("changed", null));
+        var other = new MockHttpServletRequest("GET", "/person/");
+        other.setUserPrincipal(new TestingAuthenticationToken("other", null));
+
+        assertThat(pinnedDuring(changed, new MockHttpServletResponse())).isTrue();
+        assertThat(pinnedDuring(other, new MockHttpServletResponse())).isFalse();
+        assertThat(readYourWrites.primaryOnly()).isFalse();
+    }
+
+    private boolean pinnedDuring(MockHttpServletRequest request, MockHttpServletResponse response)
+            throws Exception {
+        var pinned = new AtomicBoolean();
+        filter.doFilter(request, response, (req, res) -> pinned.set(readYourWrites.primaryOnly()));
+        return pinned.get();
+    }
+}
@@ -0,0 +1,262 @@
+package ru.job4j.auth.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two in-memory H2 databases stand for the primary and its replica, each holding a person the other
+ * does not, so every read shows where it went.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "auth.db.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "auth.db.replicas.lag-query=select seconds from replica_lag",
+        "auth.db.replicas.max-lag=1s",
+        "auth.db.replicas.check-interval=50ms",
+        "auth.db.replicas.read-your-writes=1s"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SecondLevelCacheConfig.class, ReplicaRoutingConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate REPLICA = new JdbcTemplate(
+            new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private PersonRepository persons;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @BeforeAll
+    static void createReplica() {
+        REPLICA.execute("create table if not exists person (id int primary key, login varchar(255),"
+                + " password varchar(255), version bigint not null)");
+        REPLICA.execute("create table if not exists person_roles (person_id int, role varchar(32))");
+        REPLICA.execute("create table if not exists replica_lag (seconds double)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        REPLICA.update("delete from person");
+        REPLICA.update("insert into person (id, login, password, version) values (1000000, 'replica', 'hash', 0)");
+        REPLICA.update("delete from replica_lag");
+        REPLICA.update("insert into replica_lag values (0)");
+        persons.save(new Person(null, "primary", "hash"));
+        await().until(() -> replicas().healthyReplicas() == 1 && !readYourWrites.primaryOnly());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from person");
+    }
+
+    @Test
+    void whenReadOnlyTransactionThenReadsReplica() {
+        assertThat(logins()).containsExactly("replica");
+    }
+
+    @Test
+    void whenWritingThenWritesPrimary() {
+        persons.save(new Person(null, "written", "hash"));
+        assertThat(jdbc.queryForList("select login from person order by id", String.class))
+                .containsExactly("primary", "written");
+        assertThat(REPLICA.queryForList("select login from person", String.class)).containsExactly("replica");
+    }
+
+    @Test
+    void whenReplicaLagsThenReadsPrimaryUntilItCatchesUp() {
+        REPLICA.update("update replica_lag set seconds = 5");
+        await().until(() -> replicas().healthyReplicas() == 0);
+        assertThat(logins()).containsExactly("primary");
+        REPLICA.update("update replica_lag set seconds = 0.5");
+        await().until(() -> replicas().healthyReplicas() == 1);
+        assertThat(logins()).containsExactly("replica");
+    }
+
+    @Test
+    void whenReplicaFailsHealthCheckThenReadsPrimary() {
+        REPLICA.execute("drop table replica_lag");
+        try {
+            await().until(() -> replicas().healthyReplicas() == 0);
+            assertThat(logins()).containsExactly("primary");
+        } finally {
+            createReplica();
+        }
+    }
+
+    @Test
+    void whenThreadPinnedThenReadsPrimary() {
+        readYourWrites.pinCurrentThread();
+        try {
+            assertThat(logins()).containsExactly("primary");
+        } finally {
+            readYourWrites.unpinCurrentThread();
+        }
+        assertThat(logins()).containsExactly("replica");
+    }
+
+    @Test
+    void whenUserChangedThenOnlyThatUsersRequestsReadPrimaryForWindow() {
+        events.publishEvent(UserChangedEvent.of(1, "primary"));
+        assertThat(logins()).containsExactly("replica");
+
+        assertThat(pinnedFor("other")).isFalse();
+        assertThat(readYourWrites.pinCurrentThread("primary")).isTrue();
+        try {
+            assertThat(logins()).containsExactly("primary");
+        } finally {
+            readYourWrites.unpinCurrentThread();
+        }
+        await().atMost(Duration.ofSeconds(3)).until(() -> !pinnedFor("primary"));
+        assertThat(logins()).containsExactly("replica");
+    }
+
+    @Test
+    void whenLaggingReplicaReadAfterPatchThenChangedUserLogsInWithNewPassword() {
+        var changed = persons.save(new Person(null, "changed", "oldHash"));
+        REPLICA.update("insert into person (id, login, password, version) values (?, 'changed', 'oldHash', 0)",
+                changed.getId());
+
+        persons.patch(changed.getId(), 0, null, "newHash");
+        events.publishEvent(UserChangedEvent.of(changed.getId(), "changed"));
+        assertThat(persons.findById(changed.getId())).map(Person::getPassword).contains("oldHash");
+        assertThat(persons.findByLogin("changed")).map(Person::getPassword).contains("oldHash");
+        assertThat(logins()).contains("changed");
+
+        assertThat(readYourWrites.pinCurrentThread("changed")).isTrue();
+        try {
+            assertThat(persons.findByLogin("changed")).map(Person::getPassword).contains("newHash");
+            assertThat(persons.findById(changed.getId())).map(Person::getVersion).contains(1L);
+        } finally {
+            readYourWrites.unpinCurrentThread();
+        }
+    }
+
+    @Test
+    void whenUnknownUserChangedThenReadsPrimaryForWindow() {
+        events.publishEvent(UserChangedEvent.anyUser());
+        assertThat(logins()).containsExactly("primary");
+        await().atMost(Duration.ofSeconds(3)).until(() -> !readYourWrites.primaryOnly());
+        assertThat(logins()).containsExactly("replica");
+    }
+
+    @Test
+    void whenReplicaConnectionFailsThenPrimaryAndOutOfRotation() throws SQLException {
+        var failing = new AtomicBoolean();
+        var replica = new DelegatingDataSource(new DriverManagerDataSource(REPLICA_URL, "sa", "")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (failing.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        var set = new ReplicaSet(new DriverManagerDataSource(PRIMARY_URL, "sa", ""), List.of(replica),
+                new ReadYourWrites(Duration.ZERO), "select 0", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        set.check();
+        failing.set(true);
+        try (Connection connection = set.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).startsWith("jdbc:h2:mem:routing-primary");
+        }
+        assertThat(set.healthyReplicas()).isZero();
+    }
+
+    @Test
+    void whenReplicaReportsInfiniteLagThenOutOfRotation() {
+        var set = new ReplicaSet(new DriverManagerDataSource(PRIMARY_URL, "sa", ""),
+                List.of(new DriverManagerDataSource(REPLICA_URL, "sa", "")), new ReadYourWrites(Duration.ZERO),
+                "select cast('Infinity' as double precision)", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        set.check();
+
+        assertThat(set.healthyReplicas()).isZero();
+    }
+
+    @Test
+    void whenSeveralReplicasThenTakenInTurn() throws SQLException {
+        var taken = new AtomicInteger[] {new AtomicInteger(), new AtomicInteger()};
+        var set = new ReplicaSet(new DriverManagerDataSource(PRIMARY_URL, "sa", ""),
+                List.of(counting(taken[0]), counting(taken[1])),
+                new ReadYourWrites(Duration.ZERO), "select 0", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        set.check();
+        taken[0].set(0);
+        taken[1].set(0);
+        for (int i = 0; i < 10; i++) {
+            set.getConnection().close();
+        }
+        assertThat(taken[0].get()).isEqualTo(5);
+        assertThat(taken[1].get()).isEqualTo(5);
+    }
+
+    private static DataSource counting(AtomicInteger taken) {
+        return new DelegatingDataSource(new DriverManagerDataSource(REPLICA_URL, "sa", "")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                taken.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+    }
+
+    private List<String> logins() {
+        return persons.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10)).stream().map(Person::getLogin).toList();
+    }
+
+    private boolean pinnedFor(String login) {
+        boolean pinned = readYourWrites.pinCurrentThread(login);
+        if (pinned) {
+            readYourWrites.unpinCurrentThread();
+        }
+        return pinned;
+    }
+
+    private ReplicaSet replicas() throws SQLException {
+        return dataSource.unwrap(ReplicaRoutingDataSource.class).replicas();
+    }
+}
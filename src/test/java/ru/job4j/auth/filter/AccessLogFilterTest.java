@@ -0,0 +1,97 @@
+package ru.job4j.auth.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("ru.job4j.auth.access");
+    private final ListAppender<ILoggingEvent> lines = new ListAppender<>();
+
+    @BeforeEach
+    void attach() {
+        lines.start();
+        logger.addAppender(lines);
+    }
+
+    @AfterEach
+    void detach() {
+        logger.detachAppender(lines);
+    }
+
+    @Test
+    void whenSuccessAndNotSampledThenNothingLogged() throws ServletException, IOException {
+        run(new AccessLogFilter(0.0), 200);
+        assertThat(lines.list).isEmpty();
+    }
+
+    @Test
+    void whenSuccessAndSampledThenOneStructuredLine() throws ServletException, IOException {
+        var req = new MockHttpServletRequest("GET", "/person/1");
+        req.setRemoteAddr("10.0.0.1");
+        req.setAttribute(AccessLogFilter.USER_ATTRIBUTE, "ivan");
+        new AccessLogFilter(1.0).doFilter(req, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(lines.list).hasSize(1);
+        assertThat(lines.list.get(0).getFormattedMessage()).isEqualTo("GET /person/1 200");
+        assertThat(keyValues(lines.list.get(0)))
+                .containsEntry("http.status", 200)
+                .containsEntry("outcome", "success")
+                .containsEntry("user", "ivan")
+                .containsEntry("client.ip", "10.0.0.1")
+                .containsKey("duration.us");
+    }
+
+    @Test
+    void whenClientErrorThenAlwaysLogged() throws ServletException, IOException {
+        run(new AccessLogFilter(0.0), 401);
+        assertThat(lines.list).hasSize(1);
+        assertThat(keyValues(lines.list.get(0))).containsEntry("outcome", "client_error");
+    }
+
+    @Test
+    void whenChainThrowsThenLoggedAsServerError() {
+        var chain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        assertThatThrownBy(() -> new AccessLogFilter(0.0).doFilter(new MockHttpServletRequest("POST", "/login"),
+                new MockHttpServletResponse(), chain)).isInstanceOf(IllegalStateException.class);
+        assertThat(lines.list).hasSize(1);
+        assertThat(keyValues(lines.list.get(0)))
+                .containsEntry("http.status", 500)
+                .containsEntry("outcome", "server_error");
+    }
+
+    private static void run(AccessLogFilter filter, int status) throws ServletException, IOException {
+        var res = new MockHttpServletResponse();
+        res.setStatus(status);
+        filter.doFilter(new MockHttpServletRequest("GET", "/person/"), res, new MockFilterChain());
+    }
+
+    private static Map<String, Object> keyValues(ILoggingEvent event) {
+        return event.getKeyValuePairs().stream()
+                .filter(pair -> pair.value != null)
+                .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.job4j.auth.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.job4j.auth.WebSecurity;
+import ru.job4j.auth.controller.JwksController;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.service.RefreshTokenService;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(JwksController.class)
+@Import(WebSecurity.class)
+class JWTAuthenticationFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserDetailsService users;
+
+    @MockitoBean
+    private BoundedPasswordEncoder encoder;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokens;
+
+    @Test
+    void whenLoginWithExtraFieldsThenOnlyCredentialsAreUsed() throws Exception {
+        when(users.loadUserByUsername("admin")).thenReturn(
+                User.withUsername("admin").password("hash").roles("USER").build());
+        when(encoder.matches("password", "hash")).thenReturn(true);
+        when(refreshTokens.issue("admin")).thenReturn("refresh");
+
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"login\":\"admin\",\"extra\":{\"a\":[1,2]},\"password\":\"password\"}"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", startsWith("Bearer ")))
+                .andExpect(jsonPath("$.refreshToken").value("refresh"));
+    }
+
+    @Test
+    void whenLoginBodyIsMalformedThenBadRequest() throws Exception {
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"admin\",\"password\":"))
+                .andExpect(status().isBadRequest());
+        verify(users, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void whenLoginCredentialIsMissingOrNotStringThenBadRequest() throws Exception {
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"admin\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"admin\",\"password\":{\"x\":1}}"))
+                .andExpect(status().isBadRequest());
+        verify(users, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void whenLoginBodyExceedsLimitThenBadRequest() throws Exception {
+        mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"login\":\"admin\",\"password\":\"" + "x".repeat(5000) + "\"}"))
+                .andExpect(status().isBadRequest());
+        verify(users, never()).loadUserByUsername(anyString());
+    }
+}
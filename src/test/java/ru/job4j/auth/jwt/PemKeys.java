@@ -0,0 +1,47 @@
+package ru.job4j.auth.jwt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+/**
+ * Writes key pairs the way {@code openssl} lays them out for a {@link KeyDirectory}.
+ */
+public final class PemKeys {
+
+    private PemKeys() {
+    }
+
+    public static void write(Path directory, String kid, String algorithm) throws IOException {
+        KeyPair pair = generate(algorithm);
+        Files.writeString(directory.resolve(kid + ".pub"), pem("PUBLIC KEY", pair.getPublic().getEncoded()));
+        Files.writeString(directory.resolve(kid + ".key"), pem("PRIVATE KEY", pair.getPrivate().getEncoded()));
+    }
+
+    private static KeyPair generate(String algorithm) {
+        try {
+            KeyPairGenerator generator;
+            if (SigningKey.ES256.equals(algorithm)) {
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+    }
+}
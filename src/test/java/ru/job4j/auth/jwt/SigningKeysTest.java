@@ -0,0 +1,89 @@
+package ru.job4j.auth.jwt;
+
+import com.auth0.jwt.JWT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningKeysTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenSharedSecretThenBothNodesVerifyAndNothingIsPublished() {
+        SigningKeys first = SigningKeys.sharedSecret("secret");
+        SigningKeys second = SigningKeys.sharedSecret("secret");
+
+        String token = JWT.create().withKeyId(first.current().kid()).withSubject("admin")
+                .withIssuedAt(Instant.now()).sign(first.current().algorithm());
+
+        assertThat(second.verifier(JWT.decode(token).getKeyId()).verify(token).getSubject()).isEqualTo("admin");
+        assertThat(first.jwks().body().get("keys")).isEmpty();
+    }
+
+    @Test
+    void whenTwoKeysThenOlderSignsAndNewerIsOnlyPublished() throws IOException {
+        PemKeys.write(directory, "2026-01", SigningKey.RS256);
+        PemKeys.write(directory, "2026-02", SigningKey.RS256);
+
+        SigningKeys keys = new SigningKeys(new KeyDirectory(directory, SigningKey.RS256));
+
+        assertThat(keys.current().kid()).isEqualTo("2026-01");
+        assertThat(keys.jwks().body().get("keys")).extracting(jwk -> jwk.get("kid"))
+                .containsExactly("2026-01", "2026-02");
+    }
+
+    @Test
+    void whenNodesShareDirectoryThenTokenOfOneVerifiesOnOtherAfterRestart() throws IOException {
+        PemKeys.write(directory, "2026-01", SigningKey.ES256);
+        SigningKeys first = new SigningKeys(new KeyDirectory(directory, SigningKey.ES256));
+        String token = JWT.create().withKeyId(first.current().kid()).withSubject("admin")
+                .withIssuedAt(Instant.now()).sign(first.current().algorithm());
+
+        SigningKeys restarted = new SigningKeys(new KeyDirectory(directory, SigningKey.ES256));
+
+        assertThat(restarted.verifier("2026-01").verify(token).getSubject()).isEqualTo("admin");
+        assertThat(restarted.jwks().etag()).isEqualTo(first.jwks().etag());
+    }
+
+    @Test
+    void whenKeyAddedThenReloadRotatesAndOldKeyStillVerifies() throws IOException {
+        PemKeys.write(directory, "2026-01", SigningKey.RS256);
+        PemKeys.write(directory, "2026-02", SigningKey.RS256);
+        SigningKeys keys = new SigningKeys(new KeyDirectory(directory, SigningKey.RS256));
+        String etag = keys.jwks().etag();
+
+        PemKeys.write(directory, "2026-03", SigningKey.RS256);
+        keys.reload();
+
+        assertThat(keys.current().kid()).isEqualTo("2026-02");
+        assertThat(keys.verifier("2026-01")).isNotNull();
+        assertThat(keys.jwks().etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void whenKeyHalfWrittenThenReloadKeepsPreviousKeys() throws IOException {
+        PemKeys.write(directory, "2026-01", SigningKey.RS256);
+        SigningKeys keys = new SigningKeys(new KeyDirectory(directory, SigningKey.RS256));
+
+        Files.copy(directory.resolve("2026-01.key"), directory.resolve("2026-02.key"));
+        keys.reload();
+
+        assertThat(keys.current().kid()).isEqualTo("2026-01");
+        assertThat(keys.verifier("2026-02")).isNull();
+    }
+
+    @Test
+    void whenDirectoryEmptyThenStartFails() {
+        assertThatThrownBy(() -> new SigningKeys(new KeyDirectory(directory, SigningKey.RS256)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.job4j.auth.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationsTest {
+
+    private static final Instant CHANGED = Instant.parse("2026-10-18T12:00:00.500Z");
+
+    private final TokenRevocations revocations = new TokenRevocations();
+
+    @Test
+    void whenIssuedEarlierInSameSecondThenRevoked() {
+        revocations.revoke("admin", CHANGED);
+
+        assertThat(revocations.isRevoked("admin", CHANGED.toEpochMilli() - 400)).isTrue();
+    }
+
+    @Test
+    void whenIssuedInSameSecondAfterChangeThenNotRevoked() {
+        revocations.revoke("admin", CHANGED);
+
+        assertThat(revocations.isRevoked("admin", CHANGED.toEpochMilli())).isFalse();
+        assertThat(revocations.isRevoked("admin", CHANGED.toEpochMilli() + 1)).isFalse();
+        assertThat(revocations.isRevoked("user", CHANGED.toEpochMilli() - 400)).isFalse();
+    }
+
+    @Test
+    void whenOlderWatermarkArrivesThenLaterOneKept() {
+        revocations.revoke("admin", CHANGED);
+        revocations.revoke("admin", CHANGED.minusSeconds(60));
+
+        assertThat(revocations.isRevoked("admin", CHANGED.toEpochMilli() - 1)).isTrue();
+    }
+
+    @Test
+    void whenPrunedThenOnlyNewerWatermarksRemain() {
+        revocations.revoke("admin", CHANGED.minusSeconds(3600));
+        revocations.revoke("user", CHANGED);
+
+        revocations.pruneBefore(CHANGED.minusSeconds(900));
+
+        assertThat(revocations.size()).isEqualTo(1);
+        assertThat(revocations.isRevoked("user", CHANGED.toEpochMilli() - 1)).isTrue();
+    }
+}
@@ -0,0 +1,71 @@
+package ru.job4j.auth.jwt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.event.TokensRevokedEvent;
+import ru.job4j.auth.model.TokenWatermark;
+import ru.job4j.auth.repository.token.TokenWatermarkRepository;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({SecondLevelCacheConfig.class, TokenWatermarkSync.class, TokenRevocations.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TokenWatermarkSyncTest {
+
+    private static final Instant CHANGED = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private TokenWatermarkRepository watermarks;
+
+    @Autowired
+    private PlatformTransactionManager transactions;
+
+    @AfterEach
+    void tearDown() {
+        watermarks.deleteAll();
+    }
+
+    @Test
+    void whenRevokedOutsideTransactionThenWrittenAtOnce() {
+        events.publishEvent(new TokensRevokedEvent("admin", CHANGED));
+
+        assertThat(watermarks.findById("admin")).get()
+                .extracting(TokenWatermark::getNotBefore).isEqualTo(CHANGED);
+    }
+
+    @Test
+    void whenRevokingTransactionCommitsThenWrittenAfterIt() {
+        new TransactionTemplate(transactions).executeWithoutResult(status -> {
+            events.publishEvent(new TokensRevokedEvent("admin", CHANGED));
+            assertThat(watermarks.findById("admin")).isEmpty();
+        });
+
+        assertThat(watermarks.findById("admin")).isPresent();
+    }
+
+    @Test
+    void whenRevokingTransactionRollsBackThenNothingWritten() {
+        new TransactionTemplate(transactions).executeWithoutResult(status -> {
+            events.publishEvent(new TokensRevokedEvent("admin", CHANGED));
+            status.setRollbackOnly();
+        });
+
+        assertThat(watermarks.findById("admin")).isEmpty();
+    }
+}
@@ -0,0 +1,152 @@
+package ru.job4j.auth.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import ru.job4j.auth.Job4jAuthApplication;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.repository.person.PersonRepository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same {@link PersonRepository} CRUD rounds against an embedded PostgreSQL with the
+ * default data source settings and with the {@code prod} profile, and reports the JDBC statements
+ * and persons per second. Excluded from the default build, run with
+ * {@code ./mvnw test -Dgroups=load -DexcludedGroups= -Dtest=JdbcTuningLoadTest}.
+ */
+@Tag("load")
+class JdbcTuningLoadTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+    private static final int PERSONS_PER_ROUND = 20;
+
+    private static EmbeddedPostgres postgres;
+
+    private final AtomicLong logins = new AtomicLong();
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void compareDefaultAndProductionDataSource() throws Exception {
+        Result before = run("tuning_default");
+        Result after = run("tuning_prod", "prod");
+        System.out.printf("default: %s%nprod:    %s%n", before, after);
+        assertThat(after.poolMetered()).isTrue();
+    }
+
+    private Result run(String database, String... profiles) throws Exception {
+        createDatabase(database);
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(Job4jAuthApplication.class)
+                .profiles(profiles)
+                .run(LoadDriver.arguments(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", database),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.security=WARN",
+                        "logging.level.org.springframework.web=WARN",
+                        "logging.level.ru.job4j=WARN",
+                        "auth.invalidation.enabled=false",
+                        "auth.jwt.secret=load-test-secret",
+                        "auth.db.pool.database-cores=" + Runtime.getRuntime().availableProcessors()))) {
+            PersonRepository persons = ctx.getBean(PersonRepository.class);
+            Statistics statistics = ctx.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+            rounds(persons, ROUNDS / 10);
+            statistics.clear();
+            long begin = System.nanoTime();
+            rounds(persons, ROUNDS);
+            double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+            return new Result(statistics.getPrepareStatementCount() / seconds,
+                    THREADS * ROUNDS * PERSONS_PER_ROUND / seconds,
+                    ctx.getBean(DataSource.class).unwrap(HikariDataSource.class).getMaximumPoolSize(),
+                    ctx.getBean(MeterRegistry.class).find("hikaricp.connections").gauge() != null);
+        }
+    }
+
+    private static void createDatabase(String database) throws SQLException, IOException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create database " + database);
+        }
+        LoadDriver.applySchema(postgres.getDatabase("postgres", database));
+    }
+
+    private void rounds(PersonRepository persons, int rounds) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        round(persons);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * One batched insert, a page read, then a guarded update and a delete per person.
+     */
+    private void round(PersonRepository persons) {
+        var batch = new ArrayList<Person>(PERSONS_PER_ROUND);
+        for (int i = 0; i < PERSONS_PER_ROUND; i++) {
+            batch.add(new Person(null, "tuning-" + logins.incrementAndGet(), "hash"));
+        }
+        List<Person> saved = (List<Person>) persons.saveAll(batch);
+        persons.findByIdGreaterThanOrderByIdAsc(saved.get(0).getId() - 1, Limit.of(PERSONS_PER_ROUND));
+        for (Person person : saved) {
+            persons.patch(person.getId(), person.getVersion(), person.getLogin() + "-renamed", null);
+        }
+        for (Person person : saved) {
+            persons.removeById(person.getId());
+        }
+    }
+
+    private record Result(double statementsPerSecond, double personsPerSecond, int poolSize, boolean poolMetered) {
+
+        @Override
+        public String toString() {
+            return String.format("%.0f statements/s, %.0f persons/s, pool of %d",
+                    statementsPerSecond, personsPerSecond, poolSize);
+        }
+    }
+}
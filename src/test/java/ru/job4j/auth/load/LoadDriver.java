@@ -0,0 +1,109 @@
+package ru.job4j.auth.load;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Signs a user up against a running instance and then drives authorized GETs from many
+ * concurrent clients, each sending its requests one after another.
+ */
+final class LoadDriver {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String base;
+
+    LoadDriver(int port) {
+        this.base = "http://localhost:" + port;
+    }
+
+    /**
+     * Command line arguments outrank the profile property files, unlike builder default properties.
+     */
+    static String[] arguments(String... properties) {
+        return Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new);
+    }
+
+    /**
+     * Applies the schema scripts in file name order, as on a production database.
+     */
+    static void applySchema(DataSource dataSource) throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver()
+                .getResources("classpath:db/changelog/scripts/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+        new ResourceDatabasePopulator(scripts).execute(dataSource);
+    }
+
+    String login() throws Exception {
+        String body = "{\"login\":\"load\",\"password\":\"password\"}";
+        HttpResponse<Void> signUp = client.send(post(base + "/users/sign-up", body),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(signUp.statusCode()).isEqualTo(200);
+        HttpResponse<Void> login = client.send(post(base + "/login", body), HttpResponse.BodyHandlers.discarding());
+        return login.headers().firstValue("Authorization").orElseThrow();
+    }
+
+    private static HttpRequest post(String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    Result load(String path, String token, int clients, int requests) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                .header("Authorization", token).GET().build();
+        long[] latencies = new long[clients * requests];
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int offset = c * requests;
+                executor.submit(() -> {
+                    for (int i = 0; i < requests; i++) {
+                        long begin = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                    return null;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(latencies.length * 1_000_000_000.0 / elapsed,
+                latencies[(int) (latencies.length * 0.99) - 1] / 1_000_000.0, failed.get());
+    }
+
+    record Result(double throughput, double p99Millis, int failed) {
+
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p99 %.1f ms, %d failed", throughput, p99Millis, failed);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ru.job4j.auth.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.jar.JarFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Starts the packaged service in every mode whose artifact is present in {@code target} and
+ * measures the time until the health endpoint answers, then the latency of the first sign-up, login
+ * and read. Build the artifacts first, {@code ./mvnw -P aot,cds package -DskipTests} and on GraalVM
+ * {@code ./mvnw -P native native:compile -DskipTests}, then run with
+ * {@code ./mvnw test -Dgroups=load -DexcludedGroups= -Dtest=StartupModeLoadTest}.
+ */
+@Tag("load")
+class StartupModeLoadTest {
+
+    private static final int RUNS = 3;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final Path TARGET = Path.of("target");
+    private static final String JAR = "auth-0.0.1-SNAPSHOT.jar";
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/ru/job4j/auth/Job4jAuthApplication__ApplicationContextInitializer.class";
+
+    private static EmbeddedPostgres postgres;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        LoadDriver.applySchema(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void compareStartupModes() throws Exception {
+        Map<String, Mode> modes = modes();
+        assumeFalse(modes.isEmpty(), "No packaged service in target, run ./mvnw package -DskipTests first");
+        for (Map.Entry<String, Mode> mode : modes.entrySet()) {
+            var runs = new ArrayList<Result>();
+            for (int i = 0; i < RUNS; i++) {
+                runs.add(run(mode.getValue(), "startup-" + mode.getKey() + "-" + i));
+            }
+            System.out.printf("%-8s %s%n", mode.getKey(), Result.median(runs));
+        }
+    }
+
+    private static Map<String, Mode> modes() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Map<String, Mode> modes = new LinkedHashMap<>();
+        boolean packaged = Files.exists(TARGET.resolve(JAR));
+        if (packaged) {
+            modes.put("jvm", new Mode(TARGET, java, "-jar", JAR));
+        }
+        boolean aot = packaged && aotProcessed(TARGET.resolve(JAR));
+        if (aot) {
+            modes.put("aot", new Mode(TARGET, java, "-Dspring.aot.enabled=true", "-jar", JAR));
+        }
+        Path extracted = TARGET.resolve("application");
+        if (Files.exists(extracted.resolve("application.jsa"))) {
+            modes.put(aot ? "aot+cds" : "cds", new Mode(extracted, java, "-XX:SharedArchiveFile=application.jsa",
+                    "-Dspring.aot.enabled=" + aot, "-jar", JAR));
+        }
+        if (Files.isExecutable(TARGET.resolve("auth"))) {
+            modes.put("native", new Mode(TARGET, "./auth"));
+        }
+        return modes;
+    }
+
+    private static boolean aotProcessed(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    private Result run(Mode mode, String login) throws Exception {
+        int port = freePort();
+        long begin = System.nanoTime();
+        Process process = new ProcessBuilder(arguments(mode.command(), port))
+                .directory(mode.directory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(TARGET.resolve(login + ".log").toAbsolutePath().toFile())
+                .start();
+        try {
+            awaitHealthy(process, port);
+            double startup = (System.nanoTime() - begin) / 1_000_000.0;
+            String base = "http://localhost:" + port;
+            String body = "{\"login\":\"" + login + "\",\"password\":\"password\"}";
+            Timed signUp = timed(post(base + "/users/sign-up", body));
+            Timed token = timed(post(base + "/login", body));
+            Timed read = timed(HttpRequest.newBuilder(URI.create(base + "/person/?limit=10"))
+                    .header("Authorization", token.response().headers().firstValue("Authorization").orElseThrow())
+                    .GET().build());
+            assertThat(List.of(signUp, token, read)).allMatch(timed -> timed.response().statusCode() == 200);
+            return new Result(startup, signUp.millis(), token.millis(), read.millis());
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> arguments(List<String> command, int port) {
+        var arguments = new ArrayList<>(command);
+        arguments.addAll(List.of(LoadDriver.arguments(
+                "server.port=" + port,
+                "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username=postgres",
+                "spring.datasource.password=",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.security=WARN",
+                "logging.level.org.springframework.security.web=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.com.auth0=WARN",
+                "logging.level.ru.job4j=WARN")));
+        return arguments;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void awaitHealthy(Process process, int port) throws Exception {
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (!healthy(health)) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Service exited with " + process.exitValue());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Service not healthy after " + STARTUP_TIMEOUT);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private boolean healthy(HttpRequest health) throws Exception {
+        try {
+            return client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (ConnectException e) {
+            return false;
+        }
+    }
+
+    private static HttpRequest post(String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private Timed timed(HttpRequest request) throws Exception {
+        long begin = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        return new Timed(response, (System.nanoTime() - begin) / 1_000_000.0);
+    }
+
+    /**
+     * CDS checks the class path against the training run, so the archive mode starts from the
+     * extracted directory with the same relative jar path.
+     */
+    private record Mode(Path directory, List<String> command) {
+
+        Mode(Path directory, String... command) {
+            this(directory, List.of(command));
+        }
+    }
+
+    private record Timed(HttpResponse<String> response, double millis) {
+    }
+
+    private record Result(double startupMillis, double signUpMillis, double loginMillis, double readMillis) {
+
+        static Result median(List<Result> runs) {
+            return new Result(median(runs, Result::startupMillis), median(runs, Result::signUpMillis),
+                    median(runs, Result::loginMillis), median(runs, Result::readMillis));
+        }
+
+        private static double median(List<Result> runs, ToDoubleFunction<Result> metric) {
+            return runs.stream().mapToDouble(metric).sorted().skip(runs.size() / 2).findFirst().orElseThrow();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("healthy in %.0f ms, first sign-up %.1f ms, login %.1f ms, read %.1f ms",
+                    startupMillis, signUpMillis, loginMillis, readMillis);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.job4j.auth.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.job4j.auth.Job4jAuthApplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares platform and virtual request threads under the same high concurrency against an
+ * in-memory H2 database. Excluded from the default build, run with
+ * {@code ./mvnw test -Dgroups=load -DexcludedGroups= -Dtest=ThreadModeLoadTest}.
+ */
+@Tag("load")
+class ThreadModeLoadTest {
+
+    private static final int CLIENTS = 2_000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final int DB_PERMITS = 10;
+    private static final String PATH = "/person/?limit=10";
+
+    @Test
+    void compareThreadModes() throws Exception {
+        LoadDriver.Result platform = run(false);
+        LoadDriver.Result virtual = run(true);
+        System.out.printf("platform: %s%nvirtual:  %s%n", platform, virtual);
+        assertThat(platform.failed()).isZero();
+        assertThat(virtual.failed()).isZero();
+    }
+
+    private LoadDriver.Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext ctx = start(virtualThreads)) {
+            var driver = new LoadDriver(ctx.getEnvironment().getRequiredProperty("local.server.port", Integer.class));
+            String token = driver.login();
+            driver.load(PATH, token, CLIENTS / 10, REQUESTS_PER_CLIENT);
+            return driver.load(PATH, token, CLIENTS, REQUESTS_PER_CLIENT);
+        }
+    }
+
+    private ConfigurableApplicationContext start(boolean virtualThreads) {
+        String mode = virtualThreads ? "virtual" : "platform";
+        return new SpringApplicationBuilder(Job4jAuthApplication.class).run(LoadDriver.arguments(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.hikari.maximum-pool-size=" + DB_PERMITS,
+                "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.security=WARN",
+                "logging.level.org.springframework.security.web=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.com.auth0=WARN",
+                "logging.level.ru.job4j=WARN",
+                "auth.db.max-concurrency=" + DB_PERMITS,
+                "auth.invalidation.enabled=false",
+                "auth.db.acquire-timeout=30s",
+                "spring.threads.virtual.enabled=" + virtualThreads
+        ));
+    }
+}
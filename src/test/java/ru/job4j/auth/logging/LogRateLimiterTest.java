@@ -0,0 +1,44 @@
+package ru.job4j.auth.logging;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.MutableClock;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogRateLimiterTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final LogRateLimiter limiter = new LogRateLimiter(2, clock);
+
+    @Test
+    void whenOverPermitsThenDroppedUntilNextWindow() {
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        clock.advance(Duration.ofMillis(999));
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        clock.advance(Duration.ofMillis(1));
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+    }
+
+    @Test
+    void whenNothingDroppedThenReportsZero() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire()).isZero();
+            clock.advance(Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    void whenClockSetBackThenNewWindow() {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        clock.advance(Duration.ofHours(-1));
+        assertThat(limiter.tryAcquire()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.job4j.auth.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.metrics.AuthMetrics;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class LoginThrottleTest {
+
+    private final LoginThrottle throttle = new LoginThrottle(true, Duration.ofMinutes(1), 1000, 2, 5, 1024,
+            new AuthMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void whenSuccessfulLoginsThenNotCountedAgainstLogin() {
+        for (int i = 0; i < 10; i++) {
+            throttle.checkLogin("10.0.0.1", "admin");
+        }
+    }
+
+    @Test
+    void whenFailuresReachLimitThenLoginRejectedFromAnyAddress() {
+        throttle.loginFailed("admin");
+        throttle.loginFailed("admin");
+
+        assertThatThrownBy(() -> throttle.checkLogin("10.0.0.2", "admin"))
+                .isInstanceOf(RateLimitedException.class);
+        throttle.checkLogin("10.0.0.2", "user");
+    }
+
+    @Test
+    void whenAttemptsGoOnAgainstLockedLoginThenRetryAfterGrows() {
+        throttle.loginFailed("admin");
+        throttle.loginFailed("admin");
+        long first = retryAfter("admin");
+        for (int i = 0; i < 20; i++) {
+            retryAfter("admin");
+        }
+
+        assertThat(retryAfter("admin")).isGreaterThan(first);
+    }
+
+    private long retryAfter(String login) {
+        return catchThrowableOfType(RateLimitedException.class, () -> throttle.checkLogin("10.0.0.1", login))
+                .getRetryAfterSeconds();
+    }
+}
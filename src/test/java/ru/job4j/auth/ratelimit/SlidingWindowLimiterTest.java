@@ -0,0 +1,69 @@
+package ru.job4j.auth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.MutableClock;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowLimiterTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final SlidingWindowLimiter limiter = new SlidingWindowLimiter(3, Duration.ofMinutes(1), 1024, clock);
+
+    @Test
+    void whenWithinLimitThenAllowed() {
+        assertThat(limiter.acquire("10.0.0.1")).isZero();
+        assertThat(limiter.acquire("10.0.0.1")).isZero();
+        assertThat(limiter.acquire("10.0.0.1")).isZero();
+        assertThat(limiter.acquire("10.0.0.1")).isPositive();
+        assertThat(limiter.acquire("10.0.0.2")).isZero();
+    }
+
+    @Test
+    void whenKeepHittingOverLimitThenRetryAfterGrows() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("10.0.0.1");
+        }
+        long first = limiter.acquire("10.0.0.1");
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire("10.0.0.1");
+        }
+        assertThat(limiter.acquire("10.0.0.1")).isGreaterThan(first);
+    }
+
+    @Test
+    void whenPreviousWindowSlidesOutThenAllowedAgain() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("10.0.0.1");
+        }
+        clock.advance(Duration.ofSeconds(70));
+        assertThat(limiter.check("10.0.0.1")).isPositive();
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(limiter.check("10.0.0.1")).isZero();
+        clock.advance(Duration.ofMinutes(5));
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.acquire("10.0.0.1")).isZero();
+        }
+    }
+
+    @Test
+    void whenCheckThenNothingIsCounted() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.check("admin")).isZero();
+        }
+        limiter.record("admin");
+        limiter.record("admin");
+        assertThat(limiter.check("admin")).isZero();
+        limiter.record("admin");
+        assertThat(limiter.check("admin")).isPositive();
+    }
+
+    @Test
+    void whenWidthIsNotPowerOfTwoThenRejected() {
+        assertThatThrownBy(() -> new SlidingWindowLimiter(3, Duration.ofMinutes(1), 1000, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,170 @@
+package ru.job4j.auth.repository.person;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapUserRepositoryTest {
+
+    private static final String HASH = "$2a$10$abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOP";
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenSavedThenFoundByLoginWithIdAndRoles() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            var admin = new Person(null, "admin", HASH);
+            admin.setRoles(EnumSet.of(Role.USER, Role.ADMIN));
+            users.save(admin);
+            users.save(new Person(null, "пользователь", HASH));
+
+            var found = users.findByUsername("admin");
+            assertThat(found.getId()).isEqualTo(admin.getId()).isEqualTo(1);
+            assertThat(found.getPassword()).isEqualTo(HASH);
+            assertThat(found.getRoles()).containsExactlyInAnyOrder(Role.USER, Role.ADMIN);
+            assertThat(users.findByUsername("пользователь").getId()).isEqualTo(2);
+            assertThat(users.findByUsername("nobody")).isNull();
+        }
+    }
+
+    @Test
+    void whenSavedAgainThenUpdatedUnderSameId() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            users.save(new Person(null, "ivan", HASH));
+            var changed = new Person(null, "ivan", "new-hash");
+            users.save(changed);
+
+            assertThat(changed.getId()).isEqualTo(1);
+            assertThat(users.findByUsername("ivan").getPassword()).isEqualTo("new-hash");
+            assertThat(users.findAll()).hasSize(1);
+        }
+    }
+
+    @Test
+    void whenMoreUsersThanExpectedThenTableGrows() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            for (int i = 0; i < 10_000; i++) {
+                users.save(new Person(null, "user" + i, HASH));
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertThat(users.findByUsername("user" + i).getId()).isEqualTo(i + 1);
+            }
+        }
+    }
+
+    @Test
+    void whenPagedThenIdsAscendAfterCursor() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            for (int i = 0; i < 10; i++) {
+                users.save(new Person(null, "user" + i, HASH));
+            }
+            assertThat(users.findPage(3, 4)).extracting(Person::getId).containsExactly(4, 5, 6, 7);
+            assertThat(users.findPage(8, 4)).extracting(Person::getId).containsExactly(9, 10);
+            assertThat(users.findPage(10, 4)).isEmpty();
+            var all = new ArrayList<Integer>();
+            users.forEach(person -> all.add(person.getId()));
+            assertThat(all).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        }
+    }
+
+    @Test
+    void whenNewLoginCarriesIdThenNextIdIsTaken() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            users.save(new Person(Integer.MAX_VALUE, "max", HASH));
+            users.save(new Person(1, "one", HASH));
+
+            assertThat(users.findByUsername("max").getId()).isEqualTo(1);
+            assertThat(users.findByUsername("one").getId()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void whenCreatedUnderTakenLoginThenRejectedAndKept() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            users.create(new Person(null, "ivan", HASH));
+            assertThatThrownBy(() -> users.create(new Person(null, "ivan", "new-hash")))
+                    .isInstanceOf(DuplicateKeyException.class);
+
+            assertThat(users.findByUsername("ivan").getPassword()).isEqualTo(HASH);
+            assertThat(users.findAll()).hasSize(1);
+        }
+        try (var restarted = new OffHeapUserRepository(directory, 16)) {
+            assertThat(restarted.findByUsername("ivan").getPassword()).isEqualTo(HASH);
+        }
+    }
+
+    @Test
+    void whenRestartedWithoutSnapshotThenLogIsReplayed() throws IOException {
+        var users = new OffHeapUserRepository(directory, 16);
+        users.save(new Person(null, "ivan", HASH));
+        users.save(new Person(null, "petr", HASH));
+        users.save(new Person(null, "ivan", "new-hash"));
+
+        try (var restarted = new OffHeapUserRepository(directory, 16)) {
+            assertThat(restarted.findByUsername("ivan").getPassword()).isEqualTo("new-hash");
+            assertThat(restarted.findAll()).extracting(Person::getLogin).containsExactly("ivan", "petr");
+            restarted.save(new Person(null, "anna", HASH));
+            assertThat(restarted.findByUsername("anna").getId()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void whenRestartedAfterSnapshotThenSnapshotAndNewerLogAreLoaded() throws IOException {
+        try (var users = new OffHeapUserRepository(directory, 16)) {
+            users.save(new Person(null, "ivan", HASH));
+            users.snapshot();
+            users.save(new Person(null, "petr", HASH));
+            users.save(new Person(null, "ivan", "new-hash"));
+            users.snapshot();
+            users.save(new Person(null, "anna", HASH));
+        }
+
+        try (var restarted = new OffHeapUserRepository(directory, 16)) {
+            assertThat(restarted.findAll()).extracting(Person::getLogin).containsExactly("ivan", "petr", "anna");
+            assertThat(restarted.findByUsername("ivan").getPassword()).isEqualTo("new-hash");
+        }
+        assertThat(logs()).hasSize(1);
+    }
+
+    @Test
+    void whenLogEndsWithTornRecordThenEarlierRecordsAreKept() throws IOException {
+        var users = new OffHeapUserRepository(directory, 16);
+        users.save(new Person(null, "ivan", HASH));
+        users.save(new Person(null, "petr", HASH));
+        Path log = logs().get(0);
+        long size = Files.size(log);
+        try (var channel = Files.newByteChannel(log, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 10);
+        }
+
+        try (var restarted = new OffHeapUserRepository(directory, 16)) {
+            assertThat(restarted.findByUsername("ivan")).isNotNull();
+            assertThat(restarted.findByUsername("petr")).isNull();
+            restarted.save(new Person(null, "anna", HASH));
+        }
+        try (var again = new OffHeapUserRepository(directory, 16)) {
+            assertThat(again.findByUsername("anna").getId()).isEqualTo(2);
+        }
+    }
+
+    private List<Path> logs() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.job4j.auth.repository.person;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.stream.NdjsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * More rows than one fetch of the cursor, so the stream has to go back to the database.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({SecondLevelCacheConfig.class, PersonCursor.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PersonCursorTest {
+
+    private static final int ROWS = 1_200;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Autowired
+    private PersonCursor cursor;
+
+    @Autowired
+    private PersonRepository persons;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        persons.saveAll(IntStream.range(0, ROWS).mapToObj(i -> new Person(null, "user" + i, "hash")).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from person");
+    }
+
+    @Test
+    void whenStreamedThenEveryPersonOnceInIdOrder() throws Exception {
+        var out = new ByteArrayOutputStream();
+        long count;
+        try (var ndjson = new NdjsonWriter(mapper, out)) {
+            count = cursor.forEach(ndjson::write);
+        }
+
+        var lines = out.toString().split("\n");
+        assertThat(count).isEqualTo(ROWS);
+        assertThat(lines).hasSize(ROWS);
+        var ids = new ArrayList<Integer>();
+        for (int i = 0; i < ROWS; i++) {
+            var person = mapper.readValue(lines[i], Person.class);
+            assertThat(person.getLogin()).isEqualTo("user" + i);
+            ids.add(person.getId());
+        }
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void whenStreamedThenEachRowIsDetachedAfterUse() {
+        var previous = new ArrayList<Person>();
+        var attached = new ArrayList<Person>();
+        cursor.forEach(person -> {
+            if (!previous.isEmpty() && entityManager.contains(previous.get(0))) {
+                attached.add(previous.get(0));
+            }
+            previous.clear();
+            previous.add(person);
+        });
+        assertThat(attached).isEmpty();
+    }
+
+    @Test
+    void whenConsumerFailsThenStreamIsClosed() {
+        var closed = new AtomicBoolean();
+        var repository = mock(PersonRepository.class);
+        when(repository.streamAll()).thenReturn(Stream.of(new Person(1, "admin", "hash"))
+                .onClose(() -> closed.set(true)));
+        var failing = new PersonCursor(repository, mock(EntityManager.class));
+
+        assertThatThrownBy(() -> failing.forEach(person -> {
+            throw new IllegalStateException("Client went away");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void whenFinishedThenStreamIsClosed() {
+        var closed = new AtomicBoolean();
+        var repository = mock(PersonRepository.class);
+        when(repository.streamAll()).thenReturn(Stream.of(new Person(1, "admin", "hash"))
+                .onClose(() -> closed.set(true)));
+
+        assertThat(new PersonCursor(repository, mock(EntityManager.class)).forEach(person -> { })).isEqualTo(1);
+        assertThat(closed).isTrue();
+    }
+}
@@ -0,0 +1,201 @@
+package ru.job4j.auth.repository.person;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PersonRepositoryTest {
+
+    @Autowired
+    private PersonRepository persons;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterBinder secondLevelCacheMetrics;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    private Statistics statistics;
+    private int id;
+
+    @BeforeEach
+    void setUp() {
+        var sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        id = persons.save(new Person(null, "admin", "hash")).getId();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from person");
+    }
+
+    @Test
+    void whenFindByIdRepeatedThenNoSql() {
+        persons.findById(id);
+        statistics.clear();
+
+        assertThat(persons.findById(id)).map(Person::getLogin).contains("admin");
+        assertThat(persons.findById(id)).map(Person::getLogin).contains("admin");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void whenPersonServedFromCacheThenHitIsCounted() {
+        var registry = new SimpleMeterRegistry();
+        secondLevelCacheMetrics.bindTo(registry);
+        var hits = registry.get("cache.gets")
+                .tags("cache", SecondLevelCacheConfig.PERSON, "result", "hit")
+                .functionCounter();
+        double before = hits.count();
+
+        persons.findById(id);
+        assertThat(hits.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void whenFindByLoginRepeatedThenNoSqlForPersonOrRoles() {
+        persons.findByLogin("admin");
+        statistics.clear();
+
+        var person = persons.findByLogin("admin");
+        assertThat(person).map(Person::getRoles).contains(Set.of(Role.USER));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenChangedOnAnotherNodeThenPersonIsReadAgain() {
+        persons.findById(id);
+        events.publishEvent(UserChangedEvent.of(id, "admin"));
+        statistics.clear();
+
+        persons.findById(id);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        events.publishEvent(new UserChangedEvent("admin", id, true));
+        persons.findById(id);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenChangedOnAnotherNodeThenOnlyThatLoginIsResolvedAgain() {
+        var other = persons.save(new Person(null, "user", "hash")).getId();
+        persons.findByLogin("admin");
+        persons.findByLogin("user");
+        events.publishEvent(new UserChangedEvent("admin", id, true));
+        statistics.clear();
+
+        assertThat(persons.findByLogin("user")).map(Person::getId).contains(other);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+        assertThat(persons.findByLogin("admin")).map(Person::getId).contains(id);
+        assertThat(statistics.getNaturalIdCacheMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCachedPersonPatchedThenOneUpdateKeepsPasswordAndBumpsVersion() {
+        persons.findById(id);
+        statistics.clear();
+
+        assertThat(persons.patch(id, 0, "root", null)).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        var person = persons.findById(id).orElseThrow();
+        assertThat(person.getLogin()).isEqualTo("root");
+        assertThat(person.getPassword()).isEqualTo("hash");
+        assertThat(person.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void whenLoginPatchedThenOldLoginIsNoLongerResolved() {
+        persons.findByLogin("admin");
+        persons.patch(id, 0, "root", null);
+
+        assertThat(persons.findByLogin("admin")).isEmpty();
+        assertThat(persons.findByLogin("root")).map(Person::getId).contains(id);
+    }
+
+    @Test
+    void whenLoginPatchedThenOtherPersonsStayCached() {
+        var other = persons.save(new Person(null, "user", "hash")).getId();
+        persons.findById(other);
+        persons.findByLogin("user");
+        persons.patch(id, 0, "root", null);
+        statistics.clear();
+
+        assertThat(persons.findById(other)).map(Person::getLogin).contains("user");
+        assertThat(persons.findByLogin("user")).map(Person::getId).contains(other);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void whenLoginTakenOverAfterRenameThenNewOwnerIsResolved() {
+        var other = persons.save(new Person(null, "user", "hash")).getId();
+        persons.findByLogin("admin");
+        persons.patch(id, 0, "root", null);
+        persons.patch(other, 0, "admin", null);
+
+        assertThat(persons.findByLogin("admin")).map(Person::getId).contains(other);
+    }
+
+    @Test
+    void whenPatchWithoutChangesThenVersionIsStillBumped() {
+        assertThat(persons.patch(id, 0, "admin", null)).isEqualTo(1);
+        assertThat(persons.findById(id)).map(Person::getVersion).contains(1L);
+    }
+
+    @Test
+    void whenPatchWithStaleVersionThenNothingIsUpdated() {
+        assertThat(persons.patch(id, 3, null, "newHash")).isZero();
+        assertThat(persons.findById(id)).map(Person::getPassword).contains("hash");
+    }
+
+    @Test
+    void whenRemoveByIdThenOneDeleteTakesRolesAlong() {
+        persons.findById(id);
+        statistics.clear();
+
+        assertThat(persons.removeById(id)).isEqualTo(1);
+        assertThat(persons.removeById(id)).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(persons.findById(id)).isEmpty();
+
+        assertThat(jdbc.queryForObject("select count(*) from person_roles where person_id = ?", Long.class, id))
+                .isZero();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.job4j.auth.repository.person;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.model.Person;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonsVersionTest {
+
+    @Test
+    void whenSameRowsThenSameETag() {
+        assertThat(PersonsVersion.of(List.of(person(1, 0), person(2, 3))).etag())
+                .isEqualTo(PersonsVersion.of(List.of(person(1, 0), person(2, 3))).etag());
+    }
+
+    @Test
+    void whenRowUpdatedAddedOrRemovedThenETagChanges() {
+        var etag = PersonsVersion.of(List.of(person(1, 0), person(2, 3))).etag();
+
+        assertThat(PersonsVersion.of(List.of(person(1, 1), person(2, 3))).etag()).isNotEqualTo(etag);
+        assertThat(PersonsVersion.of(List.of(person(1, 0), person(2, 3), person(3, 0))).etag()).isNotEqualTo(etag);
+        assertThat(PersonsVersion.of(List.of(person(2, 3))).etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void whenVersionsMoveBetweenRowsThenETagChanges() {
+        var etag = PersonsVersion.of(List.of(person(1, 1), person(2, 0))).etag();
+
+        assertThat(PersonsVersion.of(List.of(person(1, 0), person(2, 1))).etag()).isNotEqualTo(etag);
+    }
+
+    private static Person person(int id, long version) {
+        var person = new Person(id, "user" + id, "hash");
+        person.setVersion(version);
+        return person;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.job4j.auth.service;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+import ru.job4j.auth.model.Role;
+import ru.job4j.auth.repository.person.MemoryUserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdminProvisionerTest {
+
+    private final MemoryUserRepository users = new MemoryUserRepository();
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void whenListedAccountExistsThenGrantedAdminOnce() {
+        users.save(new Person(null, "root", "hash"));
+        var provisioner = new AdminProvisioner(users, events::add, List.of("root"));
+
+        provisioner.grant();
+        provisioner.grant();
+
+        var root = users.findByUsername("root");
+        assertThat(root.getRoles()).containsExactlyInAnyOrder(Role.USER, Role.ADMIN);
+        assertThat(events).containsExactly(UserChangedEvent.of(root.getId(), "root"));
+    }
+
+    @Test
+    void whenListedAccountMissingThenNothingCreated() {
+        users.save(new Person(null, "user", "hash"));
+
+        new AdminProvisioner(users, events::add, List.of("root")).grant();
+
+        assertThat(users.findByUsername("root")).isNull();
+        assertThat(users.findByUsername("user").getRoles()).containsExactly(Role.USER);
+        assertThat(events).isEmpty();
+    }
+}
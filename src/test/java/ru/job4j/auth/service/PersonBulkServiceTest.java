@@ -0,0 +1,144 @@
+package ru.job4j.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.auth.cache.SecondLevelCacheConfig;
+import ru.job4j.auth.crypto.BoundedPasswordEncoder;
+import ru.job4j.auth.dto.BulkImportResult;
+import ru.job4j.auth.event.UserChangedEvent;
+import ru.job4j.auth.model.Person;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "auth.bulk.batch-size=3",
+        "auth.bulk.max-reported-errors=2"
+})
+@Import({SecondLevelCacheConfig.class, PersonBulkService.class, PersonBulkServiceTest.Config.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class PersonBulkServiceTest {
+
+    @Autowired
+    private PersonBulkService bulk;
+
+    @Autowired
+    private BoundedPasswordEncoder encoder;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from person");
+    }
+
+    @Test
+    void whenImportedThenPasswordsAreHashed() {
+        var result = bulk.importAll(rows(new Person(null, "ivan", "password")), false);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(encoder.matches("password", password("ivan"))).isTrue();
+        assertThat(events.stream(UserChangedEvent.class)).containsExactly(UserChangedEvent.anyUser());
+    }
+
+    @Test
+    void whenPasswordLooksLikeHashThenHashedAnyway() {
+        String chosen = encoder.encode("known-to-caller");
+        bulk.importAll(rows(new Person(null, "ivan", chosen)), false);
+
+        assertThat(password("ivan")).isNotEqualTo(chosen);
+        assertThat(encoder.matches(chosen, password("ivan"))).isTrue();
+    }
+
+    @Test
+    void whenKeepHashesThenHashStoredAsIsAndOthersHashed() {
+        String hash = encoder.encode("exported");
+        bulk.importAll(rows(new Person(null, "ivan", hash), new Person(null, "petr", "password")), true);
+
+        assertThat(password("ivan")).isEqualTo(hash);
+        assertThat(encoder.matches("password", password("petr"))).isTrue();
+    }
+
+    @Test
+    void whenRowsInvalidThenReportedByPositionAndOthersImported() {
+        var result = bulk.importAll(rows(
+                new Person(null, "ivan", "password"),
+                new Person(null, "petr", null),
+                new Person(null, null, "password"),
+                new Person(null, "anna", "12345"),
+                new Person(null, "olga", "password")), false);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(BulkImportResult.RowError::row).containsExactly(2L, 3L);
+        assertThat(logins()).containsExactly("ivan", "olga");
+    }
+
+    @Test
+    void whenBatchFailsThenRetriedRowByRow() {
+        var result = bulk.importAll(rows(IntStream.rangeClosed(1, 7)
+                .mapToObj(i -> new Person(null, i == 5 ? "user1" : "user" + i, "password"))
+                .toArray(Person[]::new)), false);
+
+        assertThat(result.getImported()).isEqualTo(6);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(error -> {
+                    assertThat(error.row()).isEqualTo(5);
+                    assertThat(error.login()).isEqualTo("user1");
+                });
+        assertThat(logins()).containsExactly("user1", "user2", "user3", "user4", "user6", "user7");
+    }
+
+    @Test
+    void whenNothingImportedThenNoEvent() {
+        var result = bulk.importAll(rows(new Person(null, "ivan", "1")), false);
+
+        assertThat(result.getImported()).isZero();
+        assertThat(events.stream(UserChangedEvent.class)).isEmpty();
+    }
+
+    private static Iterator<Person> rows(Person... persons) {
+        return List.of(persons).iterator();
+    }
+
+    private String password(String login) {
+        return jdbc.queryForObject("select password from person where login = ?", String.class, login);
+    }
+
+    private List<String> logins() {
+        return jdbc.queryForList("select login from person order by id", String.class);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        BoundedPasswordEncoder boundedPasswordEncoder() {
+            return new BoundedPasswordEncoder(4, 2, 100, 1, new SimpleMeterRegistry());
+        }
+    }
+}
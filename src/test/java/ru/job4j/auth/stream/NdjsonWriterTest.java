@@ -0,0 +1,77 @@
+package ru.job4j.auth.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.job4j.auth.model.Person;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NdjsonWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void whenWriteRowsThenOneDocumentPerLine() throws Exception {
+        var out = new ByteArrayOutputStream();
+        try (var ndjson = new NdjsonWriter(mapper, out)) {
+            ndjson.write(new Person(1, "admin", "password"));
+            ndjson.write(new Person(2, "user", "secret"));
+            assertThat(ndjson.count()).isEqualTo(2);
+        }
+
+        assertThat(out.toString()).isEqualTo(
+                "{\"id\":1,\"login\":\"admin\",\"password\":\"password\"}\n"
+                        + "{\"id\":2,\"login\":\"user\",\"password\":\"secret\"}\n");
+    }
+
+    @Test
+    void whenClosedThenTargetFlushedButLeftOpen() throws Exception {
+        var out = new TrackingOutputStream();
+        var ndjson = new NdjsonWriter(mapper, out);
+        ndjson.write(new Person(1, "admin", "password"));
+        assertThat(out.size()).isZero();
+
+        ndjson.close();
+        assertThat(out.toString()).isEqualTo("{\"id\":1,\"login\":\"admin\",\"password\":\"password\"}\n");
+        assertThat(out.flushed).isTrue();
+        assertThat(out.closed).isFalse();
+    }
+
+    @Test
+    void whenTargetFailsThenUnchecked() throws Exception {
+        var out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        var ndjson = new NdjsonWriter(mapper, out);
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                ndjson.write(new Person(i, "user" + i, "password"));
+            }
+        }).isInstanceOf(UncheckedIOException.class).hasRootCauseMessage("Broken pipe");
+    }
+
+    private static final class TrackingOutputStream extends ByteArrayOutputStream {
+
+        private boolean flushed;
+        private boolean closed;
+
+        @Override
+        public void flush() {
+            flushed = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}